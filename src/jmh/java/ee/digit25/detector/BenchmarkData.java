@@ -0,0 +1,81 @@
+package ee.digit25.detector;
+
+import ee.digit25.detector.domain.account.external.api.AccountModel;
+import ee.digit25.detector.domain.device.external.api.DeviceModel;
+import ee.digit25.detector.domain.person.external.api.PersonModel;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic, reproducible payloads shaped like the devday API responses.
+ *
+ * Every person owns one account and every transaction moves money between two of them. About one in
+ * ten persons, accounts and devices fails validation, so rules are exercised on both outcomes.
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 25;
+
+    private final SplittableRandom random = new SplittableRandom(SEED);
+
+    private final List<PersonModel> persons = new ArrayList<>();
+    private final List<AccountModel> accounts = new ArrayList<>();
+    private final List<DeviceModel> devices = new ArrayList<>();
+    private final List<TransactionModel> transactions = new ArrayList<>();
+
+    public BenchmarkData(int parties, int transactionCount) {
+        for (int i = 0; i < parties; i++) {
+            String personCode = String.format("3%010d", i);
+
+            persons.add(new PersonModel("First" + i, "Last" + i, personCode,
+                    random.nextInt(20) == 0, random.nextInt(20) != 0, false));
+            accounts.add(new AccountModel(String.format("EE%018d", i), personCode,
+                    random.nextInt(10) == 0, BigDecimal.valueOf(random.nextInt(100_000), 2)));
+
+            DeviceModel device = new DeviceModel();
+            device.setMac(String.format("00:1a:2b:%02x:%02x:%02x", (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff));
+            device.setIsBlacklisted(random.nextInt(10) == 0);
+            devices.add(device);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < transactionCount; i++) {
+            int sender = random.nextInt(parties);
+            int recipient = random.nextInt(parties);
+
+            transactions.add(new TransactionModel(
+                    String.format("%08x-0000-4000-8000-%012x", i, random.nextLong(1L << 48)),
+                    BigDecimal.valueOf(random.nextInt(50_000), 2),
+                    persons.get(sender).getPersonCode(),
+                    persons.get(recipient).getPersonCode(),
+                    accounts.get(sender).getNumber(),
+                    accounts.get(recipient).getNumber(),
+                    devices.get(random.nextInt(parties)).getMac(),
+                    now.minusSeconds(random.nextInt(60)),
+                    now.plusSeconds(10)
+            ));
+        }
+    }
+
+    public List<PersonModel> persons() {
+        return persons;
+    }
+
+    public List<AccountModel> accounts() {
+        return accounts;
+    }
+
+    public List<DeviceModel> devices() {
+        return devices;
+    }
+
+    public List<TransactionModel> transactions() {
+        return transactions;
+    }
+}
@@ -0,0 +1,78 @@
+package ee.digit25.detector.common;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ee.digit25.detector.BenchmarkData;
+import ee.digit25.detector.domain.account.external.api.AccountModel;
+import ee.digit25.detector.domain.device.external.api.DeviceModel;
+import ee.digit25.detector.domain.person.external.api.PersonModel;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson deserialization of the API response bodies, read from bytes with a prebuilt reader per
+ * type the way the Retrofit Jackson converter does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JsonDeserializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private byte[] transactionsJson;
+    private byte[] personsJson;
+    private byte[] accountsJson;
+    private byte[] devicesJson;
+
+    private ObjectReader transactionsReader;
+    private ObjectReader personsReader;
+    private ObjectReader accountsReader;
+    private ObjectReader devicesReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        BenchmarkData data = new BenchmarkData(size, size);
+
+        transactionsJson = mapper.writeValueAsBytes(data.transactions());
+        personsJson = mapper.writeValueAsBytes(data.persons());
+        accountsJson = mapper.writeValueAsBytes(data.accounts());
+        devicesJson = mapper.writeValueAsBytes(data.devices());
+
+        transactionsReader = mapper.readerFor(new TypeReference<List<TransactionModel>>() {});
+        personsReader = mapper.readerFor(new TypeReference<List<PersonModel>>() {});
+        accountsReader = mapper.readerFor(new TypeReference<List<AccountModel>>() {});
+        devicesReader = mapper.readerFor(new TypeReference<List<DeviceModel>>() {});
+    }
+
+    @Benchmark
+    public List<TransactionModel> transactions() throws IOException {
+        return transactionsReader.readValue(transactionsJson);
+    }
+
+    @Benchmark
+    public List<PersonModel> persons() throws IOException {
+        return personsReader.readValue(personsJson);
+    }
+
+    @Benchmark
+    public List<AccountModel> accounts() throws IOException {
+        return accountsReader.readValue(accountsJson);
+    }
+
+    @Benchmark
+    public List<DeviceModel> devices() throws IOException {
+        return devicesReader.readValue(devicesJson);
+    }
+}
@@ -0,0 +1,84 @@
+package ee.digit25.detector.domain.transaction;
+
+import ee.digit25.detector.BenchmarkData;
+import ee.digit25.detector.domain.account.AccountValidator;
+import ee.digit25.detector.domain.account.external.api.AccountModel;
+import ee.digit25.detector.domain.device.DeviceValidator;
+import ee.digit25.detector.domain.device.external.api.DeviceModel;
+import ee.digit25.detector.domain.person.PersonValidator;
+import ee.digit25.detector.domain.person.external.api.PersonModel;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import ee.digit25.detector.domain.transaction.history.TransactionHistoryIndex;
+import ee.digit25.detector.domain.transaction.rule.*;
+import ee.digit25.detector.process.ValidationContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link TransactionValidator#isLegitimate} over a batch with a compiled {@link ValidationContext}
+ * and a history index holding the batch itself, the per-transaction cost of the validate stage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@OperationsPerInvocation(TransactionValidatorBenchmark.BATCH_SIZE)
+public class TransactionValidatorBenchmark {
+
+    static final int BATCH_SIZE = 1000;
+
+    @Param({"500", "5000"})
+    private int parties;
+
+    private TransactionValidator validator;
+    private ValidationContext context;
+    private List<TransactionModel> transactions;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData(parties, BATCH_SIZE);
+        transactions = data.transactions();
+        context = ValidationContext.compile(
+                index(data.persons(), PersonModel::getPersonCode),
+                index(data.accounts(), AccountModel::getNumber),
+                index(data.devices(), DeviceModel::getMac)
+        );
+
+        // The repository is only used to rebuild the index at startup
+        TransactionHistoryIndex historyIndex = new TransactionHistoryIndex(null);
+        transactions.forEach(transaction -> historyIndex.record(
+                transaction.getSender(), transaction.getTimestamp(), transaction.getDeviceMac(), true));
+
+        // Validators no longer call their requesters, everything is read from the context
+        PersonValidator personValidator = new PersonValidator(null);
+        AccountValidator accountValidator = new AccountValidator(null);
+        DeviceValidator deviceValidator = new DeviceValidator(null);
+
+        validator = new TransactionValidator(new RuleEngine(List.of(
+                new SenderRule(personValidator),
+                new RecipientRule(personValidator),
+                new DeviceRule(deviceValidator),
+                new SenderAccountRule(accountValidator),
+                new RecipientAccountRule(accountValidator),
+                new BurstRule(historyIndex),
+                new MultiDeviceRule(historyIndex),
+                new HistoryRule(historyIndex)
+        )));
+    }
+
+    @Benchmark
+    public void isLegitimate(Blackhole blackhole) {
+        for (TransactionModel transaction : transactions) {
+            blackhole.consume(validator.isLegitimate(transaction, context));
+        }
+    }
+
+    private static <T> Map<String, T> index(List<T> entities, Function<T, String> keyOf) {
+        return entities.stream().collect(Collectors.toMap(keyOf, Function.identity()));
+    }
+}
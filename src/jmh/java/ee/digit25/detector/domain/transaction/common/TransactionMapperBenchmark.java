@@ -0,0 +1,96 @@
+package ee.digit25.detector.domain.transaction.common;
+
+import ee.digit25.detector.BenchmarkData;
+import ee.digit25.detector.domain.account.common.Account;
+import ee.digit25.detector.domain.account.common.AccountRepository;
+import ee.digit25.detector.domain.device.common.Device;
+import ee.digit25.detector.domain.device.common.DeviceRepository;
+import ee.digit25.detector.domain.person.common.Person;
+import ee.digit25.detector.domain.person.common.PersonRepository;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * {@link TransactionMapper#toEntity} for a batch of decisions, the per-row cost of the JPA write path.
+ *
+ * Repositories are stubbed to answer {@code getReferenceById} with preallocated entities, like the
+ * proxies Hibernate hands out, so only the mapping itself is measured. The id resolving features
+ * are not used by {@code toEntity}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@OperationsPerInvocation(TransactionMapperBenchmark.BATCH_SIZE)
+public class TransactionMapperBenchmark {
+
+    static final int BATCH_SIZE = 1000;
+    private static final int PARTIES = 500;
+
+    private TransactionMapper mapper;
+    private TransactionParties parties;
+    private List<TransactionDecision> decisions;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData(PARTIES, BATCH_SIZE);
+
+        Map<String, Long> personIds = new HashMap<>();
+        Map<String, Long> accountIds = new HashMap<>();
+        Map<String, Long> deviceIds = new HashMap<>();
+        for (long id = 0; id < PARTIES; id++) {
+            personIds.put(data.persons().get((int) id).getPersonCode(), id);
+            accountIds.put(data.accounts().get((int) id).getNumber(), id);
+            deviceIds.put(data.devices().get((int) id).getMac(), id);
+        }
+        parties = new TransactionParties(personIds, accountIds, deviceIds);
+
+        decisions = new ArrayList<>(BATCH_SIZE);
+        for (TransactionModel transaction : data.transactions()) {
+            decisions.add(new TransactionDecision(transaction, decisions.size() % 10 != 0));
+        }
+
+        mapper = new TransactionMapper(null, null, null,
+                stub(PersonRepository.class, entities(id -> new Person("person" + id))),
+                stub(AccountRepository.class, entities(id -> new Account("account" + id))),
+                stub(DeviceRepository.class, entities(id -> new Device("device" + id))));
+    }
+
+    @Benchmark
+    public void toEntity(Blackhole blackhole) {
+        for (TransactionDecision decision : decisions) {
+            blackhole.consume(mapper.toEntity(decision, parties));
+        }
+    }
+
+    private static <E> List<E> entities(Function<Long, E> factory) {
+        List<E> entities = new ArrayList<>(PARTIES);
+        for (long id = 0; id < PARTIES; id++) {
+            entities.add(factory.apply(id));
+        }
+
+        return entities;
+    }
+
+    /**
+     * Repository answering only {@code getReferenceById}, anything else fails the benchmark.
+     */
+    @SuppressWarnings("unchecked")
+    private static <R> R stub(Class<R> repository, List<?> entities) {
+        return (R) Proxy.newProxyInstance(repository.getClassLoader(), new Class<?>[]{repository}, (proxy, method, args) -> {
+            if (method.getName().equals("getReferenceById")) {
+                return entities.get(((Long) args[0]).intValue());
+            }
+
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+}
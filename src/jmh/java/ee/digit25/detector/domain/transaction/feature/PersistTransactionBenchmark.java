@@ -0,0 +1,98 @@
+package ee.digit25.detector.domain.transaction.feature;
+
+import ee.digit25.detector.DetectorApplication;
+import ee.digit25.detector.domain.transaction.common.TransactionDecision;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JPA and COPY write paths of {@link PersistTransactionFeature}, one write of a batch of decisions.
+ *
+ * Runs the application context against a throwaway PostgreSQL container (needs Docker), migrated by
+ * Flyway like the real database. Every party is resolved once during setup, so both paths only
+ * measure the transaction inserts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(PersistTransactionBenchmark.WRITE_SIZE)
+public class PersistTransactionBenchmark {
+
+    static final int WRITE_SIZE = 1000;
+    private static final int PARTIES = 500;
+
+    @Param({"JPA", "COPY"})
+    private PersistTransactionProperties.Mode mode;
+
+    private PostgreSQLContainer<?> database;
+    private ConfigurableApplicationContext context;
+    private PersistTransactionFeature feature;
+    private List<TransactionDecision> decisions;
+    private int generated;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new PostgreSQLContainer<>("postgres:16-alpine");
+        database.start();
+
+        context = SpringApplication.run(DetectorApplication.class,
+                "--spring.datasource.url=" + database.getJdbcUrl(),
+                "--spring.datasource.username=" + database.getUsername(),
+                "--spring.datasource.password=" + database.getPassword(),
+                "--detector.processor.enabled=false",
+                "--detector.cache-warming.preload=false",
+                "--detector.audit.enabled=false");
+
+        context.getBean(PersistTransactionProperties.class).setMode(mode);
+        feature = context.getBean(PersistTransactionFeature.class);
+
+        feature.saveDecisions(generate(PARTIES * 2));
+    }
+
+    @Setup(Level.Invocation)
+    public void nextBatch() {
+        decisions = generate(WRITE_SIZE);
+    }
+
+    @Benchmark
+    public void saveDecisions() {
+        feature.saveDecisions(decisions);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        database.stop();
+    }
+
+    private List<TransactionDecision> generate(int count) {
+        List<TransactionDecision> generatedDecisions = new ArrayList<>(count);
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < count; i++, generated++) {
+            TransactionModel model = new TransactionModel();
+            model.setId("benchmark-" + generated);
+            model.setSender("benchmark-person-" + generated % PARTIES);
+            model.setRecipient("benchmark-person-" + (generated + 1) % PARTIES);
+            model.setSenderAccount("benchmark-account-" + generated % PARTIES);
+            model.setRecipientAccount("benchmark-account-" + (generated + 1) % PARTIES);
+            model.setDeviceMac("benchmark-device-" + generated % PARTIES);
+            model.setAmount(BigDecimal.valueOf(generated % 100_000, 2));
+            model.setTimestamp(now);
+            model.setDeadline(now.plusSeconds(10));
+
+            generatedDecisions.add(new TransactionDecision(model, generated % 10 != 0));
+        }
+
+        return generatedDecisions;
+    }
+}
@@ -0,0 +1,90 @@
+package ee.digit25.detector.process;
+
+import ee.digit25.detector.BenchmarkData;
+import ee.digit25.detector.common.ExecutionProperties;
+import ee.digit25.detector.common.ReferenceCacheFactory;
+import ee.digit25.detector.common.ReferenceCacheProperties;
+import ee.digit25.detector.common.WorkerThreads;
+import ee.digit25.detector.domain.account.external.AccountRequester;
+import ee.digit25.detector.domain.account.external.api.AccountModel;
+import ee.digit25.detector.domain.device.external.DeviceRequester;
+import ee.digit25.detector.domain.device.external.api.DeviceModel;
+import ee.digit25.detector.domain.person.external.PersonRequester;
+import ee.digit25.detector.domain.person.external.api.PersonModel;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the validation data of a batch, what used to be {@code Processor.prefetchValidationData}.
+ *
+ * {@link #enrich} covers key collection, the chunked lookups against warm reference caches and
+ * compiling the context; {@link #compile} only the final map and index building. Every party is
+ * cached up front, so no request ever reaches the (absent) APIs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BatchEnricherBenchmark {
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private ReferenceCacheFactory cacheFactory;
+    private BatchEnricher enricher;
+    private List<TransactionModel> transactions;
+    private Map<String, PersonModel> persons;
+    private Map<String, AccountModel> accounts;
+    private Map<String, DeviceModel> devices;
+
+    @Setup
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData(batchSize * 2, batchSize);
+        transactions = data.transactions();
+        persons = index(data.persons(), PersonModel::getPersonCode);
+        accounts = index(data.accounts(), AccountModel::getNumber);
+        devices = index(data.devices(), DeviceModel::getMac);
+
+        // Never refresh or expire during a run, a refresh would call the missing API
+        ReferenceCacheProperties cacheProperties = new ReferenceCacheProperties();
+        cacheProperties.setRefreshAfterWriteMillis(TimeUnit.HOURS.toMillis(1));
+        cacheProperties.setExpireAfterWriteMillis(TimeUnit.HOURS.toMillis(2));
+        cacheFactory = new ReferenceCacheFactory(cacheProperties);
+
+        PersonRequester personRequester = new PersonRequester(null, null, cacheFactory);
+        AccountRequester accountRequester = new AccountRequester(null, null, cacheFactory);
+        DeviceRequester deviceRequester = new DeviceRequester(null, null, cacheFactory);
+        personRequester.cache(data.persons());
+        accountRequester.cache(data.accounts());
+        deviceRequester.cache(data.devices());
+
+        ExecutionProperties executionProperties = new ExecutionProperties();
+        enricher = new BatchEnricher(new ProcessorProperties(), personRequester, accountRequester, deviceRequester,
+                new WorkerThreads(executionProperties), executionProperties);
+    }
+
+    @TearDown
+    public void tearDown() {
+        enricher.shutdown();
+        cacheFactory.shutdown();
+    }
+
+    @Benchmark
+    public ValidationContext enrich() {
+        return enricher.enrich(transactions);
+    }
+
+    @Benchmark
+    public ValidationContext compile() {
+        return ValidationContext.compile(persons, accounts, devices);
+    }
+
+    private static <T> Map<String, T> index(List<T> entities, Function<T, String> keyOf) {
+        return entities.stream().collect(Collectors.toMap(keyOf, Function.identity()));
+    }
+}
@@ -0,0 +1,293 @@
+package ee.digit25.detector.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Stand-in for the devday API on the JDK HTTP server, serving every endpoint of the transactions,
+ * persons, accounts and devices APIs from generated data.
+ *
+ * Like the real API it allows a limited number of concurrent requests per token, answering the rest
+ * with 429, and keeps at most the pending limit of undecided transactions. Every request can be
+ * delayed and failed with 500 at a configured rate. Run it on its own with {@link #main} to point a
+ * separately started detector at it, or through the {@link LoadTestHarness}.
+ */
+public class FakeDevdayApi implements AutoCloseable {
+
+    private static final long GENERATOR_TICK_MILLIS = 10;
+    private static final TypeReference<List<String>> KEYS = new TypeReference<>() {};
+    private static final Object NO_CONTENT = new Object();
+
+    private final LoadTestSettings settings;
+    private final FakeDevdayData data;
+    private final FakeTransactionPool pool;
+    private final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final Map<String, Semaphore> concurrency = new ConcurrentHashMap<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService generator = Executors.newSingleThreadScheduledExecutor();
+
+    public FakeDevdayApi(LoadTestSettings settings) throws IOException {
+        this.settings = settings;
+        this.data = new FakeDevdayData(settings);
+        this.pool = new FakeTransactionPool(settings);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", settings.port()), 1024);
+        this.server.setExecutor(handlers);
+        this.server.createContext("/", this::handle);
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = new LoadTestSettings(args);
+
+        try (FakeDevdayApi api = new FakeDevdayApi(settings)) {
+            api.start();
+            System.out.println("Fake devday API listening on " + api.baseUrl() + " with " + settings);
+
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(10_000);
+                System.out.println(api.describe());
+            }
+        }
+    }
+
+    public void start() {
+        server.start();
+
+        double perTick = settings.ratePerSecond() * GENERATOR_TICK_MILLIS / 1000.0;
+        double[] budget = {0};
+
+        generator.scheduleAtFixedRate(() -> {
+            budget[0] += perTick;
+
+            while (budget[0] >= 1 && pool.offer(data.nextTransaction())) {
+                budget[0]--;
+            }
+
+            // Creation is paused while the pending limit is reached, not queued up
+            budget[0] = Math.min(budget[0], perTick);
+        }, 0, GENERATOR_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        generator.shutdownNow();
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public FakeTransactionPool pool() {
+        return pool;
+    }
+
+    public long requests() {
+        return requests.sum();
+    }
+
+    public long throttled() {
+        return throttled.sum();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.sum();
+    }
+
+    public int peakConcurrency() {
+        return peakActive.get();
+    }
+
+    public void resetStats() {
+        pool.resetStats();
+        requests.reset();
+        throttled.reset();
+        injectedErrors.reset();
+        peakActive.set(0);
+    }
+
+    public String describe() {
+        return "requests=" + requests() + " throttled=" + throttled() + " errors=" + injectedErrors()
+                + " peakConcurrency=" + peakConcurrency() + " pending=" + pool.pending()
+                + " generated=" + pool.generated() + " verified=" + pool.verified() + " rejected=" + pool.rejected()
+                + " missedDeadlines=" + pool.missedDeadlines() + " expired=" + pool.expired();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+
+        try (exchange) {
+            String token = exchange.getRequestHeaders().getFirst("Authorization");
+            if (token == null || token.isBlank()) {
+                respond(exchange, 401, null);
+                return;
+            }
+
+            Semaphore permits = concurrency.computeIfAbsent(token, key -> new Semaphore(settings.concurrencyLimit()));
+            if (!permits.tryAcquire()) {
+                throttled.increment();
+                respond(exchange, 429, null);
+                return;
+            }
+
+            peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                delay();
+
+                if (ThreadLocalRandom.current().nextDouble() < settings.errorRate()) {
+                    injectedErrors.increment();
+                    respond(exchange, 500, null);
+                    return;
+                }
+
+                route(exchange);
+            } finally {
+                active.decrementAndGet();
+                permits.release();
+            }
+        } catch (Exception e) {
+            System.err.println("Fake API failed to answer " + exchange.getRequestURI() + ": " + e);
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        URI uri = exchange.getRequestURI();
+        String[] path = uri.getPath().substring(1).split("/");
+        boolean post = exchange.getRequestMethod().equals("POST");
+        Map<String, String> query = query(uri);
+
+        Object body = switch (path[0]) {
+            case "transactions" -> transactions(exchange, path, post, query);
+            case "persons" -> entities(exchange, path, post, query, "by-person-codes",
+                    data::persons, data::person, data::personsPage);
+            case "accounts" -> entities(exchange, path, post, query, "by-numbers",
+                    data::accounts, data::account, data::accountsPage);
+            case "devices" -> entities(exchange, path, post, query, "by-macs",
+                    data::devices, data::device, data::devicesPage);
+            default -> null;
+        };
+
+        if (body == null) {
+            respond(exchange, 404, null);
+        } else {
+            respond(exchange, 200, body == NO_CONTENT ? null : body);
+        }
+    }
+
+    private Object transactions(HttpExchange exchange, String[] path, boolean post, Map<String, String> query) throws IOException {
+        if (!post && path.length == 2 && path[1].equals("unverified")) {
+            return pool.take(Integer.parseInt(query.getOrDefault("amount", "1")));
+        }
+
+        if (post && path.length == 2 && (path[1].equals("verify") || path[1].equals("reject"))) {
+            pool.decide(mapper.readValue(exchange.getRequestBody(), KEYS), path[1].equals("verify"));
+            return NO_CONTENT;
+        }
+
+        if (post && path.length == 3 && (path[2].equals("verify") || path[2].equals("reject"))) {
+            pool.decide(List.of(path[1]), path[2].equals("verify"));
+            return NO_CONTENT;
+        }
+
+        return null;
+    }
+
+    private <T> Object entities(
+            HttpExchange exchange,
+            String[] path,
+            boolean post,
+            Map<String, String> query,
+            String bulkPath,
+            Function<List<String>, List<T>> bulk,
+            Function<String, T> single,
+            PageSource<T> page
+    ) throws IOException {
+        if (post && path.length == 2 && path[1].equals(bulkPath)) {
+            return bulk.apply(mapper.readValue(exchange.getRequestBody(), KEYS));
+        }
+
+        if (!post && path.length == 2) {
+            return single.apply(path[1]);
+        }
+
+        if (!post && path.length == 1) {
+            return page.get(Integer.parseInt(query.getOrDefault("pageNumber", "0")),
+                    Integer.parseInt(query.getOrDefault("pageSize", "100")));
+        }
+
+        return null;
+    }
+
+    private void delay() throws InterruptedException {
+        long jitter = settings.latencyJitterMillis() > 0
+                ? ThreadLocalRandom.current().nextLong(settings.latencyJitterMillis() + 1)
+                : 0;
+        long millis = settings.latencyMillis() + jitter;
+
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        byte[] json = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, json.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(json);
+        }
+    }
+
+    private static Map<String, String> query(URI uri) {
+        Map<String, String> query = new HashMap<>();
+
+        if (uri.getRawQuery() != null) {
+            for (String pair : uri.getRawQuery().split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator > 0) {
+                    query.put(pair.substring(0, separator), pair.substring(separator + 1));
+                }
+            }
+        }
+
+        return query;
+    }
+
+    @FunctionalInterface
+    private interface PageSource<T> {
+
+        List<T> get(int pageNumber, int pageSize);
+    }
+}
@@ -0,0 +1,144 @@
+package ee.digit25.detector.loadtest;
+
+import ee.digit25.detector.domain.account.external.api.AccountModel;
+import ee.digit25.detector.domain.device.external.api.DeviceModel;
+import ee.digit25.detector.domain.person.external.api.PersonModel;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Population of persons, accounts and devices, and the transactions between them.
+ *
+ * Every person owns one account and uses two devices of their own. Senders are heavily skewed, a
+ * small share of persons sends most transactions, and a sender mostly uses their own devices, so
+ * caches and the history rules see the repetition they see against the real API. A few percent of
+ * every entity type fails validation.
+ */
+public class FakeDevdayData {
+
+    private static final double SENDER_SKEW = 3;
+    private static final double FOREIGN_DEVICE_SHARE = 0.05;
+
+    private final List<PersonModel> persons = new ArrayList<>();
+    private final List<AccountModel> accounts = new ArrayList<>();
+    private final List<DeviceModel> devices = new ArrayList<>();
+    private final Map<String, PersonModel> personsByCode = new HashMap<>();
+    private final Map<String, AccountModel> accountsByNumber = new HashMap<>();
+    private final Map<String, DeviceModel> devicesByMac = new HashMap<>();
+
+    private final long deadlineMillis;
+    private final AtomicLong sequence = new AtomicLong();
+
+    public FakeDevdayData(LoadTestSettings settings) {
+        this.deadlineMillis = settings.deadlineMillis();
+
+        SplittableRandom random = new SplittableRandom(settings.seed());
+
+        for (int i = 0; i < settings.persons(); i++) {
+            PersonModel person = new PersonModel("First" + i, "Last" + i, String.format("3%010d", i),
+                    random.nextInt(100) < 3, random.nextInt(100) >= 2, random.nextInt(100) < 2);
+            persons.add(person);
+            personsByCode.put(person.getPersonCode(), person);
+
+            AccountModel account = new AccountModel(String.format("EE%018d", i), person.getPersonCode(),
+                    random.nextInt(100) < 3, BigDecimal.valueOf(random.nextInt(1_000_000), 2));
+            accounts.add(account);
+            accountsByNumber.put(account.getNumber(), account);
+        }
+
+        for (int i = 0; i < settings.persons() * 2; i++) {
+            DeviceModel device = new DeviceModel();
+            device.setMac(String.format("02:00:%02x:%02x:%02x:%02x", (i >> 24) & 0xff, (i >> 16) & 0xff, (i >> 8) & 0xff, i & 0xff));
+            device.setIsBlacklisted(random.nextInt(100) < 3);
+            devices.add(device);
+            devicesByMac.put(device.getMac(), device);
+        }
+    }
+
+    public TransactionModel nextTransaction() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        int sender = (int) (persons.size() * Math.pow(random.nextDouble(), SENDER_SKEW));
+        int recipient = random.nextInt(persons.size());
+        int device = random.nextDouble() < FOREIGN_DEVICE_SHARE
+                ? random.nextInt(devices.size())
+                : sender * 2 + random.nextInt(2);
+
+        LocalDateTime now = LocalDateTime.now();
+
+        return new TransactionModel(
+                "lt-" + sequence.incrementAndGet() + "-" + Long.toHexString(random.nextLong()),
+                BigDecimal.valueOf(random.nextInt(1, 50_000), 2),
+                persons.get(sender).getPersonCode(),
+                persons.get(recipient).getPersonCode(),
+                accounts.get(sender).getNumber(),
+                accounts.get(recipient).getNumber(),
+                devices.get(device).getMac(),
+                now,
+                now.plusNanos(deadlineMillis * 1_000_000)
+        );
+    }
+
+    public List<PersonModel> persons(Collection<String> personCodes) {
+        return lookup(personCodes, personsByCode);
+    }
+
+    public List<AccountModel> accounts(Collection<String> numbers) {
+        return lookup(numbers, accountsByNumber);
+    }
+
+    public List<DeviceModel> devices(Collection<String> macs) {
+        return lookup(macs, devicesByMac);
+    }
+
+    public PersonModel person(String personCode) {
+        return personsByCode.get(personCode);
+    }
+
+    public AccountModel account(String number) {
+        return accountsByNumber.get(number);
+    }
+
+    public DeviceModel device(String mac) {
+        return devicesByMac.get(mac);
+    }
+
+    public List<PersonModel> personsPage(int pageNumber, int pageSize) {
+        return page(persons, pageNumber, pageSize);
+    }
+
+    public List<AccountModel> accountsPage(int pageNumber, int pageSize) {
+        return page(accounts, pageNumber, pageSize);
+    }
+
+    public List<DeviceModel> devicesPage(int pageNumber, int pageSize) {
+        return page(devices, pageNumber, pageSize);
+    }
+
+    private static <T> List<T> lookup(Collection<String> keys, Map<String, T> entities) {
+        List<T> found = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            T entity = entities.get(key);
+            if (entity != null) {
+                found.add(entity);
+            }
+        }
+
+        return found;
+    }
+
+    private static <T> List<T> page(List<T> entities, int pageNumber, int pageSize) {
+        long from = (long) pageNumber * pageSize;
+
+        if (pageNumber < 0 || pageSize <= 0 || from >= entities.size()) {
+            return List.of();
+        }
+
+        return entities.subList((int) from, (int) Math.min(entities.size(), from + pageSize));
+    }
+}
@@ -0,0 +1,211 @@
+package ee.digit25.detector.loadtest;
+
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Undecided transactions of the fake API and what happened to them.
+ *
+ * getUnverified hands out the oldest available transactions and hides them for the lease time; if
+ * no decision arrives in time they become available again, so lost decisions are retried the way the
+ * real API retries them. Transactions past their deadline are dropped when they come up and counted
+ * as expired. At most the pending limit of undecided transactions exist at any time.
+ */
+public class FakeTransactionPool {
+
+    private final int pendingLimit;
+    private final long leaseNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Pending> pending = new HashMap<>();
+    private final ArrayDeque<Pending> available = new ArrayDeque<>();
+    private final ArrayDeque<Pending> leased = new ArrayDeque<>();
+
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder handedOut = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder missedDeadlines = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder unknownDecisions = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public FakeTransactionPool(LoadTestSettings settings) {
+        this.pendingLimit = settings.pendingLimit();
+        this.leaseNanos = settings.leaseMillis() * 1_000_000;
+    }
+
+    /**
+     * @return whether the transaction was added, false once the pending limit is reached
+     */
+    public boolean offer(TransactionModel transaction) {
+        lock.lock();
+        try {
+            if (pending.size() >= pendingLimit) {
+                return false;
+            }
+
+            Pending entry = new Pending(transaction, System.nanoTime());
+            pending.put(transaction.getId(), entry);
+            available.addLast(entry);
+            generated.increment();
+
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<TransactionModel> take(int amount) {
+        List<TransactionModel> taken = new ArrayList<>(Math.min(amount, pendingLimit));
+        long now = System.nanoTime();
+        LocalDateTime wallNow = LocalDateTime.now();
+
+        lock.lock();
+        try {
+            returnExpiredLeases(now);
+
+            while (taken.size() < amount && !available.isEmpty()) {
+                Pending entry = available.pollFirst();
+
+                if (entry.decided) {
+                    continue;
+                }
+
+                if (entry.transaction.getDeadline().isBefore(wallNow)) {
+                    pending.remove(entry.transaction.getId());
+                    entry.decided = true;
+                    expired.increment();
+                    continue;
+                }
+
+                entry.leasedUntil = now + leaseNanos;
+                leased.addLast(entry);
+                taken.add(entry.transaction);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        handedOut.add(taken.size());
+
+        return taken;
+    }
+
+    public void decide(Collection<String> ids, boolean legitimate) {
+        long now = System.nanoTime();
+        LocalDateTime wallNow = LocalDateTime.now();
+
+        lock.lock();
+        try {
+            for (String id : ids) {
+                Pending entry = pending.remove(id);
+
+                if (entry == null) {
+                    unknownDecisions.increment();
+                    continue;
+                }
+
+                entry.decided = true;
+                (legitimate ? verified : rejected).increment();
+                latency.record((now - entry.createdAtNanos) / 1_000_000);
+
+                if (entry.transaction.getDeadline().isBefore(wallNow)) {
+                    missedDeadlines.increment();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int pending() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long generated() {
+        return generated.sum();
+    }
+
+    public long handedOut() {
+        return handedOut.sum();
+    }
+
+    public long verified() {
+        return verified.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long missedDeadlines() {
+        return missedDeadlines.sum();
+    }
+
+    public long expired() {
+        return expired.sum();
+    }
+
+    public long unknownDecisions() {
+        return unknownDecisions.sum();
+    }
+
+    /**
+     * Time from creation until the decision arrived.
+     */
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    public void resetStats() {
+        generated.reset();
+        handedOut.reset();
+        verified.reset();
+        rejected.reset();
+        missedDeadlines.reset();
+        expired.reset();
+        unknownDecisions.reset();
+        latency.reset();
+    }
+
+    private void returnExpiredLeases(long now) {
+        List<Pending> returned = new ArrayList<>();
+
+        // Leases are handed out in time order, so expired ones are at the head
+        while (!leased.isEmpty() && leased.peekFirst().leasedUntil <= now) {
+            Pending entry = leased.pollFirst();
+
+            if (!entry.decided) {
+                returned.add(entry);
+            }
+        }
+
+        // Ahead of newer transactions, oldest first
+        for (int i = returned.size() - 1; i >= 0; i--) {
+            available.addFirst(returned.get(i));
+        }
+    }
+
+    private static class Pending {
+
+        private final TransactionModel transaction;
+        private final long createdAtNanos;
+        private long leasedUntil;
+        private boolean decided;
+
+        Pending(TransactionModel transaction, long createdAtNanos) {
+            this.transaction = transaction;
+            this.createdAtNanos = createdAtNanos;
+        }
+    }
+}
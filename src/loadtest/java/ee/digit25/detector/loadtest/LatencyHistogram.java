@@ -0,0 +1,51 @@
+package ee.digit25.detector.loadtest;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Millisecond resolution histogram up to one minute, slower values land in the last bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int MAX_MILLIS = 60_000;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(MAX_MILLIS + 1);
+
+    public void record(long millis) {
+        buckets.incrementAndGet((int) Math.max(0, Math.min(MAX_MILLIS, millis)));
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            count += buckets.get(i);
+        }
+
+        return count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return latency in millis, 0 when nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long count = count();
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long seen = 0;
+
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+
+        return 0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+    }
+}
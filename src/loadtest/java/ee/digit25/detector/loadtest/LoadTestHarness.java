@@ -0,0 +1,92 @@
+package ee.digit25.detector.loadtest;
+
+import ee.digit25.detector.DetectorApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test: starts the {@link FakeDevdayApi}, runs the detector against it for a fixed
+ * time, the 3 minutes of the evaluation by default, and reports throughput and decision latency as
+ * the API saw them.
+ *
+ * The run is measured from the start of the detector, so startup and cache warming count against it
+ * just like in the evaluation. The detector uses its regular configuration and database, only the
+ * base URLs and the token are replaced. Run with {@code ./gradlew loadTest}, options go to
+ * {@code -PloadTestArgs}, see {@link LoadTestSettings}; other arguments are passed to the detector.
+ */
+public class LoadTestHarness {
+
+    private static final long PROGRESS_INTERVAL_SECONDS = 10;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = new LoadTestSettings(args);
+        FakeDevdayApi api = new FakeDevdayApi(settings);
+        api.start();
+
+        System.out.println("Fake devday API listening on " + api.baseUrl() + " with " + settings);
+
+        long start = System.nanoTime();
+        ConfigurableApplicationContext context = SpringApplication.run(DetectorApplication.class, detectorArgs(args, api));
+        long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        long end = start + TimeUnit.SECONDS.toNanos(settings.durationSeconds());
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(PROGRESS_INTERVAL_SECONDS),
+                    Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            System.out.println("Load test progress: " + api.describe());
+        }
+
+        // Taken before shutdown, decisions sent while draining do not count
+        String report = report(api, settings, System.nanoTime() - start, startupMillis);
+
+        context.close();
+        api.close();
+
+        System.out.println(report);
+        System.exit(0);
+    }
+
+    private static String[] detectorArgs(String[] args, FakeDevdayApi api) {
+        List<String> detectorArgs = new ArrayList<>();
+
+        for (String arg : args) {
+            if (!arg.startsWith(LoadTestSettings.PREFIX)) {
+                detectorArgs.add(arg);
+            }
+        }
+
+        for (String name : List.of("transactions", "persons", "accounts", "devices")) {
+            detectorArgs.add("--" + name + ".api.base-url=" + api.baseUrl());
+        }
+        detectorArgs.add("--detector.token=loadtest");
+
+        return detectorArgs.toArray(String[]::new);
+    }
+
+    private static String report(FakeDevdayApi api, LoadTestSettings settings, long elapsedNanos, long startupMillis) {
+        FakeTransactionPool pool = api.pool();
+        double seconds = elapsedNanos / 1e9;
+        long decisions = pool.verified() + pool.rejected();
+
+        return String.join(System.lineSeparator(),
+                "",
+                "==== Load test report ====",
+                "Settings:          " + settings,
+                String.format("Duration:          %.1f s (detector started in %d ms)", seconds, startupMillis),
+                String.format("Decisions:         %d (%.1f per second), %d verified, %d rejected",
+                        decisions, decisions / seconds, pool.verified(), pool.rejected()),
+                "Decision latency:  p50=" + pool.latency().percentile(50) + "ms p99=" + pool.latency().percentile(99)
+                        + "ms p99.9=" + pool.latency().percentile(99.9) + "ms",
+                "Missed deadlines:  " + pool.missedDeadlines() + " decided late, " + pool.expired() + " expired undecided",
+                "Generated:         " + pool.generated() + ", handed out " + pool.handedOut() + ", pending at end " + pool.pending(),
+                "Requests:          " + api.requests() + ", throttled " + api.throttled() + ", injected errors "
+                        + api.injectedErrors() + ", peak concurrency " + api.peakConcurrency(),
+                "Unknown decisions: " + pool.unknownDecisions(),
+                ""
+        );
+    }
+}
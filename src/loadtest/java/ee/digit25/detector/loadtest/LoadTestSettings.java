@@ -0,0 +1,124 @@
+package ee.digit25.detector.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of the fake API and the harness, given as {@code --loadtest.<name>=<value>} arguments.
+ * All other arguments are passed on to the detector application unchanged.
+ */
+public class LoadTestSettings {
+
+    static final String PREFIX = "--loadtest.";
+
+    private final Map<String, String> values = new HashMap<>();
+
+    public LoadTestSettings(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith(PREFIX)) {
+                continue;
+            }
+
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected " + PREFIX + "<name>=<value>, got " + arg);
+            }
+
+            values.put(arg.substring(PREFIX.length(), separator), arg.substring(separator + 1));
+        }
+    }
+
+    /**
+     * Port of the fake API, 0 picks a free one.
+     */
+    public int port() {
+        return intValue("port", 0);
+    }
+
+    /**
+     * Length of the measured run.
+     */
+    public int durationSeconds() {
+        return intValue("duration-seconds", 180);
+    }
+
+    /**
+     * New transactions per second, generation pauses while the pending limit is reached.
+     */
+    public int ratePerSecond() {
+        return intValue("rate-per-second", 2000);
+    }
+
+    /**
+     * Undecided transactions per token, like the devday API.
+     */
+    public int pendingLimit() {
+        return intValue("pending-limit", 10000);
+    }
+
+    /**
+     * Concurrent requests per token, requests over it are answered with 429.
+     */
+    public int concurrencyLimit() {
+        return intValue("concurrency-limit", 50);
+    }
+
+    /**
+     * Time from creation until a transaction must be decided.
+     */
+    public long deadlineMillis() {
+        return intValue("deadline-millis", 5000);
+    }
+
+    /**
+     * Time a transaction returned by getUnverified is hidden from other calls.
+     */
+    public long leaseMillis() {
+        return intValue("lease-millis", 2000);
+    }
+
+    /**
+     * Fixed latency added to every request.
+     */
+    public long latencyMillis() {
+        return intValue("latency-millis", 5);
+    }
+
+    /**
+     * Random latency of up to this much added on top of the fixed latency.
+     */
+    public long latencyJitterMillis() {
+        return intValue("latency-jitter-millis", 10);
+    }
+
+    /**
+     * Share of requests failing with 500, between 0 and 1.
+     */
+    public double errorRate() {
+        return Double.parseDouble(values.getOrDefault("error-rate", "0"));
+    }
+
+    /**
+     * Persons in the generated population, each with an account and usual devices.
+     */
+    public int persons() {
+        return intValue("persons", 5000);
+    }
+
+    public long seed() {
+        return intValue("seed", 25);
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + ratePerSecond() + "/s pendingLimit=" + pendingLimit() + " concurrencyLimit=" + concurrencyLimit()
+                + " deadline=" + deadlineMillis() + "ms latency=" + latencyMillis() + "+" + latencyJitterMillis()
+                + "ms errorRate=" + errorRate() + " persons=" + persons();
+    }
+
+    private int intValue(String name, int defaultValue) {
+        String value = values.get(name);
+
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,363 @@
+package ee.digit25.detector.common;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import retrofit2.Invocation;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Process-wide limiter for outbound devday API calls, installed as an OkHttp interceptor on every API.
+ *
+ * Each call holds a permit from before the request is sent until its response body is closed, so the
+ * number of calls the server sees in flight never exceeds the current limit. The limit adapts AIMD
+ * style: it grows by roughly one per window of successful calls and shrinks multiplicatively when
+ * the API answers 429/503 or latency climbs well above the observed baseline.
+ *
+ * The baseline is kept per request class, the endpoint plus a power-of-two bucket of the request
+ * size (body bytes, or the amount/page size asked for). A getUnverified of 1000 or a bulk lookup is
+ * naturally many times slower than a single-id verify, comparing it against the fastest call of
+ * any kind would read normal mixed traffic as congestion.
+ *
+ * Waiting calls are granted in {@link ApiPriority} order. Background calls are additionally capped
+ * to a share of the limit and normal calls leave a few permits free for critical ones.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ApiConcurrencyLimiter implements Interceptor {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final ApiLimiterProperties properties;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition[] permitFreed = Stream.generate(lock::newCondition)
+            .limit(ApiPriority.values().length)
+            .toArray(Condition[]::new);
+    private final int[] waiting = new int[ApiPriority.values().length];
+    private final int[] inFlightByPriority = new int[ApiPriority.values().length];
+
+    private double limit = -1;
+    private int inFlight;
+    private final Map<RequestClass, Baseline> baselines = new HashMap<>();
+    private long lastDecreaseNanos;
+
+    private final LongAdder[] granted = Stream.generate(LongAdder::new)
+            .limit(ApiPriority.values().length)
+            .toArray(LongAdder[]::new);
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private int maxInFlight;
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        ApiPriority priority = ApiPriority.of(chain.request());
+        RequestClass requestClass = RequestClass.of(chain.request());
+        acquire(priority);
+
+        Permit permit = new Permit(priority);
+        long start = System.nanoTime();
+
+        try {
+            Response response = chain.proceed(chain.request());
+            onResponse(requestClass, response.code(), System.nanoTime() - start);
+
+            if (response.body() == null) {
+                permit.release();
+                return response;
+            }
+
+            return response.newBuilder()
+                    .body(new PermitReleasingBody(response.body(), permit))
+                    .build();
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            permit.release();
+            throw e;
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${detector.processor.stats-interval-millis:10000}")
+    public void logStats() {
+        int currentLimit;
+        int currentInFlight;
+        int peakInFlight;
+        int queued;
+
+        lock.lock();
+        try {
+            currentLimit = currentLimit();
+            currentInFlight = inFlight;
+            peakInFlight = maxInFlight;
+            maxInFlight = inFlight;
+            queued = waiting[0] + waiting[1] + waiting[2];
+        } finally {
+            lock.unlock();
+        }
+
+        long critical = granted[ApiPriority.CRITICAL.ordinal()].sumThenReset();
+        long normal = granted[ApiPriority.NORMAL.ordinal()].sumThenReset();
+        long background = granted[ApiPriority.BACKGROUND.ordinal()].sumThenReset();
+        long calls = critical + normal + background;
+
+        log.info("API limiter stats: limit={} inFlight={} peakInFlight={} queued={} calls[critical={}, normal={}, background={}] avgWait={}ms throttled={} failures={}",
+                currentLimit, currentInFlight, peakInFlight, queued, critical, normal, background,
+                calls == 0 ? 0 : waitNanos.sumThenReset() / 1_000_000 / calls,
+                throttled.sumThenReset(), failures.sumThenReset());
+    }
+
+    private void acquire(ApiPriority priority) throws InterruptedIOException {
+        int index = priority.ordinal();
+        long start = System.nanoTime();
+
+        lock.lock();
+        try {
+            waiting[index]++;
+            try {
+                while (!canAcquire(priority)) {
+                    permitFreed[index].await();
+                }
+            } finally {
+                waiting[index]--;
+            }
+
+            inFlight++;
+            inFlightByPriority[index]++;
+            maxInFlight = Math.max(maxInFlight, inFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an API permit");
+        } finally {
+            lock.unlock();
+        }
+
+        granted[index].increment();
+        waitNanos.add(System.nanoTime() - start);
+    }
+
+    private boolean canAcquire(ApiPriority priority) {
+        int available = currentLimit() - inFlight;
+        // Never reserve so much that normal calls starve at a small limit
+        int reserve = Math.min(properties.getCriticalReserve(), currentLimit() / 2);
+
+        for (int higher = 0; higher < priority.ordinal(); higher++) {
+            if (waiting[higher] > 0) {
+                return false;
+            }
+        }
+
+        return switch (priority) {
+            case CRITICAL -> available > 0;
+            case NORMAL -> available > reserve;
+            case BACKGROUND -> available > reserve
+                    && inFlightByPriority[ApiPriority.BACKGROUND.ordinal()] < currentLimit() * properties.getBackgroundShare();
+        };
+    }
+
+    private void release(ApiPriority priority) {
+        lock.lock();
+        try {
+            inFlight--;
+            inFlightByPriority[priority.ordinal()]--;
+            signalWaiting();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onResponse(RequestClass requestClass, int code, long latencyNanos) {
+        lock.lock();
+        try {
+            if (code == TOO_MANY_REQUESTS || code == SERVICE_UNAVAILABLE) {
+                throttled.increment();
+                decrease(properties.getBackoffRatio());
+                return;
+            }
+
+            Baseline baseline = baselines.computeIfAbsent(requestClass, key -> new Baseline());
+            baseline.nanos = Math.min(baseline.nanos, latencyNanos);
+
+            if (latencyNanos > baseline.nanos * properties.getLatencyTolerance()) {
+                decrease(Math.sqrt(properties.getBackoffRatio()));
+            } else if (inFlight >= currentLimit() / 2) {
+                // Only grow while the limit is actually being used
+                limit = Math.min(properties.getMaxLimit(), limit() + 1.0 / limit());
+                signalWaiting();
+            }
+
+            // Let the baseline drift up slowly so a single lucky sample does not pin it forever
+            baseline.nanos += baseline.nanos >> 10;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(double ratio) {
+        long now = System.nanoTime();
+
+        if (now - lastDecreaseNanos < properties.getDecreaseCooldownMillis() * 1_000_000) {
+            return;
+        }
+
+        lastDecreaseNanos = now;
+        limit = Math.max(properties.getMinLimit(), limit() * ratio);
+    }
+
+    private double limit() {
+        if (limit < 0) {
+            limit = Math.min(properties.getInitialLimit(), properties.getMaxLimit());
+        }
+
+        return limit;
+    }
+
+    private int currentLimit() {
+        return (int) limit();
+    }
+
+    private void signalWaiting() {
+        for (ApiPriority priority : ApiPriority.values()) {
+            if (waiting[priority.ordinal()] > 0) {
+                permitFreed[priority.ordinal()].signalAll();
+            }
+        }
+    }
+
+    /**
+     * Calls whose latencies are comparable: same endpoint and request size within a factor of two.
+     */
+    record RequestClass(Object endpoint, int sizeClass) {
+
+        static RequestClass of(Request request) throws IOException {
+            Invocation invocation = request.tag(Invocation.class);
+            // Without the Retrofit method the path would contain ids, fall back to the host
+            Object endpoint = invocation != null
+                    ? invocation.method()
+                    : request.method() + " " + request.url().host();
+
+            return new RequestClass(endpoint, 64 - Long.numberOfLeadingZeros(Math.max(0, size(request))));
+        }
+
+        private static long size(Request request) throws IOException {
+            RequestBody body = request.body();
+
+            if (body != null && body.contentLength() > 0) {
+                return body.contentLength();
+            }
+
+            String amount = request.url().queryParameter("amount");
+            if (amount == null) {
+                amount = request.url().queryParameter("pageSize");
+            }
+
+            try {
+                return amount == null ? 0 : Long.parseLong(amount);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Lowest recent latency of one request class, only accessed under the lock.
+     */
+    private static final class Baseline {
+
+        private long nanos = Long.MAX_VALUE;
+    }
+
+    private final class Permit {
+
+        private final ApiPriority priority;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(ApiPriority priority) {
+            this.priority = priority;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                ApiConcurrencyLimiter.this.release(priority);
+            }
+        }
+    }
+
+    /**
+     * Holds the permit until the body has been read and closed, the server counts the request as
+     * in flight until then.
+     */
+    private static final class PermitReleasingBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+        private final BufferedSource source;
+
+        private PermitReleasingBody(ResponseBody delegate, Permit permit) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        permit.release();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+    }
+}
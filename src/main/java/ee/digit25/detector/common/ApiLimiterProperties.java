@@ -0,0 +1,65 @@
+package ee.digit25.detector.common;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.api.limiter")
+public class ApiLimiterProperties {
+
+    /**
+     * Concurrency limit to start from before any feedback has been seen.
+     */
+    @Min(1)
+    private int initialLimit = 20;
+
+    @Min(1)
+    private int minLimit = 4;
+
+    /**
+     * Hard ceiling, the devday API allows 50 concurrent requests per token.
+     */
+    @Min(1)
+    private int maxLimit = 50;
+
+    /**
+     * Permits that only critical calls may take.
+     */
+    @Min(0)
+    private int criticalReserve = 4;
+
+    /**
+     * Share of the current limit background calls may occupy.
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private double backgroundShare = 0.5;
+
+    /**
+     * Multiplier applied to the limit when the API throttles us.
+     */
+    @DecimalMin("0.1")
+    @DecimalMax("1.0")
+    private double backoffRatio = 0.75;
+
+    /**
+     * A response slower than this many times the baseline latency counts as congestion.
+     */
+    @DecimalMin("1.0")
+    private double latencyTolerance = 3.0;
+
+    /**
+     * Minimum time between two decreases, so one burst of 429s only shrinks the limit once.
+     */
+    @Min(0)
+    private long decreaseCooldownMillis = 500;
+}
@@ -0,0 +1,70 @@
+package ee.digit25.detector.common;
+
+import okhttp3.Request;
+
+import java.util.function.Supplier;
+
+/**
+ * Priority classes of outbound devday API calls, highest first.
+ *
+ * The class of a request is taken from a {@link #callAs} scope on the calling thread when there is
+ * one, otherwise from the request itself: transaction endpoints are critical, paged reference
+ * listings are background work and everything else is normal enrichment. Asynchronous calls are
+ * intercepted on an OkHttp dispatcher thread, outside of any scope, so they are always classified
+ * from the request.
+ */
+public enum ApiPriority {
+
+    /**
+     * getUnverified and verify/reject, the calls that decide throughput.
+     */
+    CRITICAL,
+
+    /**
+     * Reference data lookups the current batch is waiting for.
+     */
+    NORMAL,
+
+    /**
+     * Cache warming and other prefetches nobody is waiting for.
+     */
+    BACKGROUND;
+
+    private static final ThreadLocal<ApiPriority> SCOPE = new ThreadLocal<>();
+
+    public static <T> T callAs(ApiPriority priority, Supplier<T> supplier) {
+        ApiPriority previous = SCOPE.get();
+        SCOPE.set(priority);
+
+        try {
+            return supplier.get();
+        } finally {
+            SCOPE.set(previous);
+        }
+    }
+
+    public static void runAs(ApiPriority priority, Runnable runnable) {
+        callAs(priority, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    static ApiPriority of(Request request) {
+        ApiPriority scoped = SCOPE.get();
+
+        if (scoped != null) {
+            return scoped;
+        }
+
+        if (request.url().encodedPath().startsWith("/transactions")) {
+            return CRITICAL;
+        }
+
+        if (request.url().queryParameter("pageNumber") != null) {
+            return BACKGROUND;
+        }
+
+        return NORMAL;
+    }
+}
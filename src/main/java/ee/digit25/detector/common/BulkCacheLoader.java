@@ -0,0 +1,121 @@
+package ee.digit25.detector.common;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Loads cache entries through a bulk endpoint.
+ *
+ * Misses are loaded on the calling thread, so they run at the caller's {@link ApiPriority}. Refreshes
+ * are collected for a short delay, or until a batch is full, and reloaded with one bulk call at
+ * background priority. Until then, and if the call fails, the cache keeps serving the old values.
+ */
+@Slf4j
+class BulkCacheLoader<V> implements AsyncCacheLoader<String, V> {
+
+    private final String name;
+    private final Function<List<String>, List<V>> fetcher;
+    private final Function<V, String> keyOf;
+    private final ScheduledExecutorService scheduler;
+    private final int batchSize;
+    private final long batchDelayMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Map<String, CompletableFuture<V>> pendingRefreshes = new HashMap<>();
+
+    BulkCacheLoader(
+            String name,
+            Function<List<String>, List<V>> fetcher,
+            Function<V, String> keyOf,
+            ScheduledExecutorService scheduler,
+            int batchSize,
+            long batchDelayMillis
+    ) {
+        this.name = name;
+        this.fetcher = fetcher;
+        this.keyOf = keyOf;
+        this.scheduler = scheduler;
+        this.batchSize = batchSize;
+        this.batchDelayMillis = batchDelayMillis;
+    }
+
+    @Override
+    public CompletableFuture<V> asyncLoad(String key, Executor executor) {
+        try {
+            return CompletableFuture.completedFuture(load(List.of(key)).get(key));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Map<String, V>> asyncLoadAll(Set<? extends String> keys, Executor executor) {
+        try {
+            return CompletableFuture.completedFuture(load(new ArrayList<>(keys)));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<V> asyncReload(String key, V oldValue, Executor executor) {
+        lock.lock();
+        try {
+            CompletableFuture<V> refresh = pendingRefreshes.computeIfAbsent(key, ignored -> new CompletableFuture<>());
+
+            if (pendingRefreshes.size() == 1) {
+                scheduler.schedule(this::flushRefreshes, batchDelayMillis, TimeUnit.MILLISECONDS);
+            } else if (pendingRefreshes.size() >= batchSize) {
+                scheduler.execute(this::flushRefreshes);
+            }
+
+            return refresh;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushRefreshes() {
+        Map<String, CompletableFuture<V>> refreshes;
+
+        lock.lock();
+        try {
+            if (pendingRefreshes.isEmpty()) {
+                return;
+            }
+
+            refreshes = pendingRefreshes;
+            pendingRefreshes = new HashMap<>();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            Map<String, V> loaded = ApiPriority.callAs(ApiPriority.BACKGROUND, () -> load(new ArrayList<>(refreshes.keySet())));
+
+            // Keys missing from the response complete with null, which removes them from the cache
+            refreshes.forEach((key, refresh) -> refresh.complete(loaded.get(key)));
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh {} {}, keeping the old values", refreshes.size(), name, e);
+            refreshes.values().forEach(refresh -> refresh.completeExceptionally(e));
+        }
+    }
+
+    private Map<String, V> load(List<String> keys) {
+        Map<String, V> loaded = new HashMap<>();
+
+        for (V value : fetcher.apply(keys)) {
+            loaded.putIfAbsent(keyOf.apply(value), value);
+        }
+
+        return loaded;
+    }
+}
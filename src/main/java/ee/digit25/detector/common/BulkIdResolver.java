@@ -0,0 +1,84 @@
+package ee.digit25.detector.common;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.*;
+
+/**
+ * Resolves natural keys (person codes, account numbers, device MACs) to row ids of one table in bulk.
+ *
+ * Keys missing from the id cache are inserted with a single INSERT ... ON CONFLICT DO NOTHING RETURNING,
+ * keys that already existed are read back with one SELECT ... WHERE key = ANY(?). Every resolved id is
+ * cached, so keys seen before never reach the database again. Null keys, e.g. of a transaction
+ * without a device, are skipped and have no id in the result.
+ *
+ * Runs outside of any transaction on purpose: the cache must only ever hold ids of committed rows.
+ */
+@Slf4j
+public class BulkIdResolver {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String insertSql;
+    private final String selectSql;
+    private final Cache<String, Long> ids;
+
+    public BulkIdResolver(JdbcTemplate jdbcTemplate, String table, String keyColumn, long maximumSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.insertSql = "INSERT INTO " + table + " (" + keyColumn + ") SELECT unnest(?::text[]) " +
+                "ON CONFLICT (" + keyColumn + ") DO NOTHING RETURNING id, " + keyColumn;
+        this.selectSql = "SELECT id, " + keyColumn + " FROM " + table + " WHERE " + keyColumn + " = ANY(?::text[])";
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public Map<String, Long> resolve(Collection<String> keys) {
+        List<String> present = keys.stream().filter(Objects::nonNull).toList();
+        Map<String, Long> resolved = new HashMap<>(ids.getAllPresent(present));
+
+        // Sorted so concurrent inserts lock the unique index in the same order
+        SortedSet<String> missing = new TreeSet<>();
+        for (String key : present) {
+            if (!resolved.containsKey(key)) {
+                missing.add(key);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return resolved;
+        }
+
+        Map<String, Long> loaded = query(insertSql, missing);
+        missing.removeAll(loaded.keySet());
+
+        if (!missing.isEmpty()) {
+            loaded.putAll(query(selectSql, missing));
+        }
+
+        ids.putAll(loaded);
+        resolved.putAll(loaded);
+
+        return resolved;
+    }
+
+    private Map<String, Long> query(String sql, Collection<String> keys) {
+        Map<String, Long> result = new HashMap<>();
+
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(sql);
+                    statement.setArray(1, connection.createArrayOf("text", keys.toArray()));
+                    return statement;
+                },
+                resultSet -> {
+                    result.put(resultSet.getString(2), resultSet.getLong(1));
+                }
+        );
+
+        return result;
+    }
+}
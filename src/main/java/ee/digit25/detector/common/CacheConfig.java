@@ -16,9 +16,6 @@ public class CacheConfig {
     @Bean
     public CacheManager cacheManager() {
         CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        cacheManager.registerCustomCache("persons", buildCache(30, 10000));
-        cacheManager.registerCustomCache("accounts", buildCache(30, 10000));
-        cacheManager.registerCustomCache("devices", buildCache(30, 10000));
         cacheManager.registerCustomCache("transactionHistory", buildCache(5, 5000));
         return cacheManager;
     }
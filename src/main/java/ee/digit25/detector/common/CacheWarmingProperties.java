@@ -0,0 +1,55 @@
+package ee.digit25.detector.common;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.cache-warming")
+public class CacheWarmingProperties {
+
+    /**
+     * Walks the paged persons, accounts and devices endpoints at startup.
+     */
+    private boolean preload = true;
+
+    /**
+     * Number of the first page, as expected by the paged endpoints.
+     */
+    @Min(0)
+    private int firstPage = 0;
+
+    @Min(1)
+    private int pageSize = 1000;
+
+    /**
+     * Pages loaded per entity type, pages times page size should not exceed the cache size.
+     */
+    @Min(0)
+    private int maxPages = 10;
+
+    /**
+     * Page requests in flight per entity type. They run at background priority, the limiter keeps
+     * them within the background share of the concurrency budget.
+     */
+    @Min(1)
+    private int parallelism = 4;
+
+    /**
+     * Parties of transactions persisted within this window are warmed as well.
+     */
+    @Min(0)
+    private long recentMinutes = 10;
+
+    /**
+     * Longest time the processor start waits for the warm-up, the rest is warmed in the background.
+     */
+    @Min(0)
+    private long startupTimeoutMillis = 5000;
+}
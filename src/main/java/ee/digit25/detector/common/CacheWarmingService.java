@@ -1,100 +1,242 @@
 package ee.digit25.detector.common;
 
+import com.google.common.collect.Lists;
 import ee.digit25.detector.domain.account.external.AccountRequester;
 import ee.digit25.detector.domain.device.external.DeviceRequester;
 import ee.digit25.detector.domain.person.external.PersonRequester;
-import ee.digit25.detector.domain.transaction.common.Transaction;
+import ee.digit25.detector.domain.transaction.common.TransactionPartiesView;
 import ee.digit25.detector.domain.transaction.common.TransactionRepository;
+import ee.digit25.detector.process.ProcessorProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.event.EventListener;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
- * Service that warms up caches on application startup by pre-fetching entities
- * from recent transactions. This eliminates cold-start performance degradation
- * by ensuring the cache has high hit rates from the first batch of processing.
+ * Service that warms up caches on application startup, so the first batches run at full cache hit rate.
+ *
+ * First the paged persons, accounts and devices endpoints are walked in parallel and every entity is
+ * put into its cache. Then the parties of recently persisted transactions are streamed from the
+ * database and whatever is still missing is fetched with the batch endpoints. All calls run at
+ * background priority, behind any calls the pipeline makes.
+ *
+ * Runs as a lifecycle bean in a phase before the processor, whose start waits for the warm-up up to
+ * the startup timeout. A warm-up that takes longer carries on in the background until it is done or
+ * the application stops, which interrupts it.
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
-public class CacheWarmingService {
+public class CacheWarmingService implements SmartLifecycle {
 
+    private static final int PROGRESS_LOG_PAGES = 10;
+
+    private final CacheWarmingProperties properties;
+    private final ProcessorProperties processorProperties;
     private final PersonRequester personRequester;
     private final AccountRequester accountRequester;
     private final DeviceRequester deviceRequester;
     private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WorkerThreads threads;
+
+    private volatile boolean running;
+    private volatile Thread warmingThread;
+    private CompletableFuture<Void> warming;
+
+    @Override
+    public void start() {
+        running = true;
+        warming = CompletableFuture.runAsync(this::warmCaches, task -> {
+            warmingThread = threads.newThread("cache-warming", task);
+            warmingThread.start();
+        });
+
+        try {
+            warming.get(properties.getStartupTimeoutMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Cache warming still running after {} ms, starting the pipeline without waiting for it",
+                    properties.getStartupTimeoutMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Cache warming failed", e.getCause());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+
+        if (warming != null && !warming.isDone()) {
+            log.info("Stopping cache warming that is still running");
+            warming.cancel(true);
+            warmingThread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
 
     /**
-     * Warms caches when application is ready by:
-     * 1. Fetching recent transactions from the last 10 minutes
-     * 2. Extracting unique person codes, account numbers, and device MACs
-     * 3. Pre-fetching these entities using batch API endpoints
-     * 4. Logging the number of entities warmed
+     * Starts before the processor, which uses the default phase.
      */
-    @EventListener(ApplicationReadyEvent.class)
-    public void warmCaches() {
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+
+    private void warmCaches() {
         log.info("Starting cache warming...");
+        long start = System.nanoTime();
 
         try {
-            LocalDateTime recentCutoff = LocalDateTime.now().minusMinutes(10);
-            List<Transaction> recentTransactions = transactionRepository.findAll()
-                .stream()
-                .filter(tx -> tx.getTimestamp() != null && tx.getTimestamp().isAfter(recentCutoff))
-                .toList();
-
-            if (recentTransactions.isEmpty()) {
-                log.info("No recent transactions found for cache warming");
-                return;
+            if (properties.isPreload()) {
+                preload();
             }
 
-            Set<String> personCodes = new HashSet<>();
-            Set<String> accountNumbers = new HashSet<>();
-            Set<String> deviceMacs = new HashSet<>();
+            warmRecent();
 
-            // Collect unique entities from recent transactions
-            for (Transaction tx : recentTransactions) {
-                if (tx.getSender() != null) {
-                    personCodes.add(tx.getSender().getPersonCode());
-                }
-                if (tx.getRecipient() != null) {
-                    personCodes.add(tx.getRecipient().getPersonCode());
-                }
-                if (tx.getSenderAccount() != null) {
-                    accountNumbers.add(tx.getSenderAccount().getNumber());
+            log.info("Cache warming complete in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (InterruptedException e) {
+            log.info("Cache warming interrupted after {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Error during cache warming: {}", e.getMessage(), e);
+            // Don't fail application startup due to cache warming errors
+        }
+    }
+
+    private void preload() throws InterruptedException, ExecutionException {
+        ExecutorService executor = threads.newExecutor("cache-warming", properties.getParallelism() * 3);
+
+        try {
+            // Interruptible, unlike join, the workers are interrupted when the executor is shut down
+            CompletableFuture.allOf(
+                    preload("persons", personRequester::get, personRequester::cache, executor),
+                    preload("accounts", accountRequester::get, accountRequester::cache, executor),
+                    preload("devices", deviceRequester::get, deviceRequester::cache, executor)
+            ).get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Walks pages with parallel workers, each claiming the next page number, until a page comes back
+     * short or the page limit is reached.
+     */
+    private <T> CompletableFuture<Void> preload(
+            String cacheName,
+            PageLoader<T> loader,
+            Consumer<List<T>> cache,
+            ExecutorService executor
+    ) {
+        int endPage = properties.getFirstPage() + properties.getMaxPages();
+        AtomicInteger nextPage = new AtomicInteger(properties.getFirstPage());
+        AtomicInteger pages = new AtomicInteger();
+        AtomicInteger entities = new AtomicInteger();
+        AtomicBoolean exhausted = new AtomicBoolean();
+        long start = System.nanoTime();
+
+        Runnable worker = () -> ApiPriority.runAs(ApiPriority.BACKGROUND, () -> {
+            while (!exhausted.get() && !Thread.currentThread().isInterrupted()) {
+                int page = nextPage.getAndIncrement();
+
+                if (page >= endPage) {
+                    return;
                 }
-                if (tx.getRecipientAccount() != null) {
-                    accountNumbers.add(tx.getRecipientAccount().getNumber());
+
+                List<T> loaded = loader.load(page, properties.getPageSize());
+                cache.accept(loaded);
+
+                if (loaded.size() < properties.getPageSize()) {
+                    exhausted.set(true);
                 }
-                if (tx.getDevice() != null) {
-                    deviceMacs.add(tx.getDevice().getMac());
+
+                int total = entities.addAndGet(loaded.size());
+                if (pages.incrementAndGet() % PROGRESS_LOG_PAGES == 0) {
+                    log.info("Preloading {}: {} pages, {} entities", cacheName, pages.get(), total);
                 }
             }
+        });
 
-            // Pre-fetch and cache hot entities using batch endpoints
-            if (!personCodes.isEmpty()) {
-                personRequester.get(new ArrayList<>(personCodes));
-            }
-            if (!accountNumbers.isEmpty()) {
-                accountRequester.get(new ArrayList<>(accountNumbers));
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[properties.getParallelism()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(worker, executor);
+        }
+
+        return CompletableFuture.allOf(workers).whenComplete((result, e) -> {
+            if (e != null) {
+                log.error("Preloading {} failed after {} pages", cacheName, pages.get(), e);
+            } else {
+                log.info("Preloaded {} {} from {} pages in {} ms",
+                        entities.get(), cacheName, pages.get(), (System.nanoTime() - start) / 1_000_000);
             }
-            if (!deviceMacs.isEmpty()) {
-                deviceRequester.get(new ArrayList<>(deviceMacs));
+        });
+    }
+
+    private void warmRecent() throws InterruptedException {
+        Set<String> personCodes = new HashSet<>();
+        Set<String> accountNumbers = new HashSet<>();
+        Set<String> deviceMacs = new HashSet<>();
+        LocalDateTime since = LocalDateTime.now().minusMinutes(properties.getRecentMinutes());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<TransactionPartiesView> parties = transactionRepository.streamPartiesAfter(since)) {
+                parties.forEach(tx -> {
+                    personCodes.add(tx.getSender());
+                    personCodes.add(tx.getRecipient());
+                    accountNumbers.add(tx.getSenderAccount());
+                    accountNumbers.add(tx.getRecipientAccount());
+                    deviceMacs.add(tx.getDeviceMac());
+                });
             }
+        });
 
-            log.info("Cache warming complete! Warmed {} persons, {} accounts, {} devices from {} recent transactions",
-                personCodes.size(), accountNumbers.size(), deviceMacs.size(), recentTransactions.size());
+        // The batch requesters only call the API for entities the preload did not cache
+        warmInChunks(personCodes, personRequester::get);
+        warmInChunks(accountNumbers, accountRequester::get);
+        warmInChunks(deviceMacs, deviceRequester::get);
 
-        } catch (Exception e) {
-            log.error("Error during cache warming: {}", e.getMessage(), e);
-            // Don't fail application startup due to cache warming errors
+        log.info("Warmed {} persons, {} accounts, {} devices of recent transactions",
+                personCodes.size(), accountNumbers.size(), deviceMacs.size());
+    }
+
+    /**
+     * Looks the keys up in chunks of the enrichment chunk size, so no single call is unbounded.
+     */
+    private void warmInChunks(Collection<String> keys, Consumer<List<String>> requester) throws InterruptedException {
+        for (List<String> chunk : Lists.partition(new ArrayList<>(keys), processorProperties.getEnrichChunkSize())) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+
+            ApiPriority.runAs(ApiPriority.BACKGROUND, () -> requester.accept(chunk));
         }
     }
+
+    @FunctionalInterface
+    private interface PageLoader<T> {
+
+        List<T> load(int pageNumber, int pageSize);
+    }
 }
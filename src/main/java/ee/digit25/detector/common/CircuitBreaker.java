@@ -0,0 +1,121 @@
+package ee.digit25.detector.common;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Consecutive-failure circuit breaker.
+ *
+ * Closed, every call is allowed. After the failure threshold of consecutive failures it opens and
+ * rejects calls for the open time. Then it is half-open and lets one trial call through: success
+ * closes it, failure opens it again. A trial without an outcome is replaced after another open time.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long trialStartedAt;
+    private long opened;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000;
+    }
+
+    /**
+     * @throws CircuitBreakerOpenException when the call may not be made
+     */
+    public void acquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                long remaining = openedAt + openNanos - System.nanoTime();
+
+                if (remaining > 0) {
+                    throw new CircuitBreakerOpenException(name, remaining / 1_000_000 + 1);
+                }
+
+                state = State.HALF_OPEN;
+                trialStartedAt = System.nanoTime() - openNanos;
+            }
+
+            if (state == State.HALF_OPEN) {
+                long remaining = trialStartedAt + openNanos - System.nanoTime();
+
+                if (remaining > 0) {
+                    throw new CircuitBreakerOpenException(name, remaining / 1_000_000 + 1);
+                }
+
+                trialStartedAt = System.nanoTime();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess() {
+        lock.lock();
+        try {
+            consecutiveFailures = 0;
+
+            if (state != State.CLOSED) {
+                log.info("Circuit breaker {} closed", name);
+                state = State.CLOSED;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            consecutiveFailures++;
+
+            if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+                log.warn("Circuit breaker {} opened after {} consecutive failures", name, consecutiveFailures);
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                opened++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Times the breaker opened since the previous call.
+     */
+    public long openedAndReset() {
+        lock.lock();
+        try {
+            long count = opened;
+            opened = 0;
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
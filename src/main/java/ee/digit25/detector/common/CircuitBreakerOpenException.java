@@ -0,0 +1,17 @@
+package ee.digit25.detector.common;
+
+import lombok.Getter;
+
+/**
+ * Thrown instead of making a call while its {@link CircuitBreaker} is open.
+ */
+@Getter
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private final long retryAfterMillis;
+
+    public CircuitBreakerOpenException(String name, long retryAfterMillis) {
+        super("Circuit breaker " + name + " is open, retry in " + retryAfterMillis + " ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+}
@@ -0,0 +1,26 @@
+package ee.digit25.detector.common;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.execution")
+public class ExecutionProperties {
+
+    /**
+     * Runs pipeline stages, enrichment lookups, cache warming and the write-behind on virtual threads.
+     */
+    private boolean virtualThreads = false;
+
+    /**
+     * Makes enrichment lookups with asynchronous HTTP calls, so no thread waits for a response.
+     * Otherwise each lookup blocks a thread of the enrichment executor.
+     */
+    private boolean asyncHttp = true;
+}
@@ -1,6 +1,7 @@
 package ee.digit25.detector.common;
 
 import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import org.springframework.context.annotation.Bean;
@@ -20,7 +21,11 @@ public class HttpLoggingConfig {
     }
 
     @Bean
-    public OkHttpClient okHttpClient(HttpLoggingInterceptor httpLoggingInterceptor) {
+    public OkHttpClient okHttpClient(
+            HttpLoggingInterceptor httpLoggingInterceptor,
+            ApiLimiterProperties limiterProperties,
+            WorkerThreads threads
+    ) {
         // Connection pool configured for 50 concurrent API limit
         ConnectionPool connectionPool = new ConnectionPool(
                 50,                      // maxIdleConnections: match API concurrent limit
@@ -28,9 +33,17 @@ public class HttpLoggingConfig {
                 TimeUnit.MINUTES         // keepAliveDuration unit
         );
 
+        // Asynchronous calls are queued by the dispatcher, which defaults to 5 per host. Every API
+        // is on the same host, allow the whole budget there; the concurrency limiter still decides
+        // how many calls actually go out.
+        Dispatcher dispatcher = new Dispatcher(threads.newExecutor("okhttp-dispatcher", limiterProperties.getMaxLimit()));
+        dispatcher.setMaxRequests(limiterProperties.getMaxLimit());
+        dispatcher.setMaxRequestsPerHost(limiterProperties.getMaxLimit());
+
         return new OkHttpClient.Builder()
                 // Connection pool configuration
                 .connectionPool(connectionPool)
+                .dispatcher(dispatcher)
                 // Timeout configurations
                 .connectTimeout(10, TimeUnit.SECONDS)    // Connection establishment timeout
                 .readTimeout(30, TimeUnit.SECONDS)       // Time to wait for data
@@ -0,0 +1,22 @@
+package ee.digit25.detector.common;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.id-cache")
+public class IdCacheProperties {
+
+    /**
+     * Maximum number of key to id mappings kept per table.
+     */
+    @Min(0)
+    private long maximumSize = 100000;
+}
@@ -0,0 +1,63 @@
+package ee.digit25.detector.common;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latencies of the most recent calls, for percentiles over a sliding window.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int next;
+    private int size;
+
+    public LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public void record(long nanos) {
+        lock.lock();
+        try {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            size = Math.min(size + 1, samples.length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return latency in nanos, -1 while the window is empty
+     */
+    public long percentile(double percentile) {
+        long[] sorted;
+
+        lock.lock();
+        try {
+            if (size == 0) {
+                return -1;
+            }
+
+            sorted = Arrays.copyOf(samples, size);
+        } finally {
+            lock.unlock();
+        }
+
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+}
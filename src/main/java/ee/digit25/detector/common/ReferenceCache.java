@@ -0,0 +1,116 @@
+package ee.digit25.detector.common;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Refresh-ahead cache of one reference entity type with negative caching.
+ *
+ * Keys the bulk endpoint did not return are remembered as absent for a short time, so an unknown key
+ * is not requested again by every following batch. Lookups of absent keys simply return nothing.
+ *
+ * {@link #getAllAsync} loads misses through the asynchronous bulk endpoint without blocking the caller.
+ * Loads of the same keys already in progress are shared by both paths.
+ */
+public class ReferenceCache<V> {
+
+    private final AsyncLoadingCache<String, V> entities;
+    private final Cache<String, Boolean> absent;
+    private final Function<V, String> keyOf;
+    private final Function<List<String>, CompletableFuture<List<V>>> asyncFetcher;
+
+    ReferenceCache(
+            AsyncLoadingCache<String, V> entities,
+            Cache<String, Boolean> absent,
+            Function<V, String> keyOf,
+            Function<List<String>, CompletableFuture<List<V>>> asyncFetcher
+    ) {
+        this.entities = entities;
+        this.absent = absent;
+        this.keyOf = keyOf;
+        this.asyncFetcher = asyncFetcher;
+    }
+
+    /**
+     * @return the cached and loaded entities by key, keys confirmed absent are left out
+     */
+    public Map<String, V> getAll(Collection<String> keys) {
+        List<String> lookup = withoutAbsent(keys);
+
+        return rememberAbsent(lookup, entities.getAll(lookup).join());
+    }
+
+    /**
+     * Same as {@link #getAll}, completing once the misses have been loaded.
+     */
+    public CompletableFuture<Map<String, V>> getAllAsync(Collection<String> keys) {
+        List<String> lookup = withoutAbsent(keys);
+
+        return entities.getAll(lookup, (missing, executor) -> asyncFetcher.apply(new ArrayList<>(missing))
+                        .thenApply(this::byKey))
+                .thenApply(found -> rememberAbsent(lookup, found));
+    }
+
+    /**
+     * @return the entity or null when it does not exist
+     */
+    public V get(String key) {
+        return getAll(List.of(key)).get(key);
+    }
+
+    public void putAll(Collection<V> values) {
+        for (V value : values) {
+            String key = keyOf.apply(value);
+            entities.synchronous().put(key, value);
+            absent.invalidate(key);
+        }
+    }
+
+    private List<String> withoutAbsent(Collection<String> keys) {
+        List<String> lookup = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            if (key != null && absent.getIfPresent(key) == null) {
+                lookup.add(key);
+            }
+        }
+
+        return lookup;
+    }
+
+    private Map<String, V> rememberAbsent(List<String> lookup, Map<String, V> found) {
+        if (found.size() < lookup.size()) {
+            for (String key : lookup) {
+                if (!found.containsKey(key)) {
+                    absent.put(key, Boolean.TRUE);
+                }
+            }
+        }
+
+        return found;
+    }
+
+    private Map<String, V> byKey(List<V> values) {
+        Map<String, V> loaded = new HashMap<>();
+        for (V value : values) {
+            loaded.putIfAbsent(keyOf.apply(value), value);
+        }
+
+        return loaded;
+    }
+
+    AsyncLoadingCache<String, V> entities() {
+        return entities;
+    }
+
+    Cache<String, Boolean> absent() {
+        return absent;
+    }
+}
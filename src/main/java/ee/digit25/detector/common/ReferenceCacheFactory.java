@@ -0,0 +1,100 @@
+package ee.digit25.detector.common;
+
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * Builds the refresh-ahead caches of the reference entities (persons, accounts, devices).
+ *
+ * Entries older than the refresh age are reloaded in bulk in the background on their next read while
+ * the old value keeps being served; entries that are not read again expire, which bounds staleness.
+ * Keys the endpoints do not know are cached as absent for a short time.
+ */
+@Slf4j
+@Component
+public class ReferenceCacheFactory {
+
+    private final ReferenceCacheProperties properties;
+    private final ScheduledExecutorService refreshScheduler;
+    private final Map<String, ReferenceCache<?>> caches = new ConcurrentHashMap<>();
+    private final Map<String, CacheStats> reportedStats = new ConcurrentHashMap<>();
+
+    public ReferenceCacheFactory(ReferenceCacheProperties properties) {
+        this.properties = properties;
+        this.refreshScheduler = Executors.newScheduledThreadPool(
+                3,
+                new ThreadFactoryBuilder().setNameFormat("reference-cache-refresh-%d").setDaemon(true).build()
+        );
+    }
+
+    /**
+     * @param fetcher      bulk endpoint, entities it does not return are treated as absent
+     * @param asyncFetcher the same bulk endpoint called asynchronously
+     * @param keyOf        key of a returned entity
+     */
+    public <V> ReferenceCache<V> build(
+            String name,
+            Function<List<String>, List<V>> fetcher,
+            Function<List<String>, CompletableFuture<List<V>>> asyncFetcher,
+            Function<V, String> keyOf
+    ) {
+        AsyncLoadingCache<String, V> entities = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .refreshAfterWrite(Duration.ofMillis(properties.getRefreshAfterWriteMillis()))
+                .expireAfterWrite(Duration.ofMillis(properties.getExpireAfterWriteMillis()))
+                .recordStats()
+                .buildAsync(new BulkCacheLoader<>(
+                        name,
+                        fetcher,
+                        keyOf,
+                        refreshScheduler,
+                        properties.getRefreshBatchSize(),
+                        properties.getRefreshBatchDelayMillis()
+                ));
+
+        Cache<String, Boolean> absent = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(Duration.ofMillis(properties.getAbsentTtlMillis()))
+                .build();
+
+        ReferenceCache<V> cache = new ReferenceCache<>(entities, absent, keyOf, asyncFetcher);
+        caches.put(name, cache);
+
+        return cache;
+    }
+
+    @Scheduled(fixedRateString = "${detector.processor.stats-interval-millis:10000}")
+    public void logStats() {
+        caches.forEach((name, cache) -> {
+            CacheStats total = cache.entities().synchronous().stats();
+            CacheStats stats = total.minus(reportedStats.getOrDefault(name, CacheStats.empty()));
+            reportedStats.put(name, total);
+
+            log.info("Reference cache {} stats: size={} absent={} hitRate={}% misses={} loads={} loadFailures={} evictions={}",
+                    name, cache.entities().synchronous().estimatedSize(), cache.absent().estimatedSize(),
+                    Math.round(stats.hitRate() * 100), stats.missCount(), stats.loadSuccessCount(),
+                    stats.loadFailureCount(), stats.evictionCount());
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshScheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,52 @@
+package ee.digit25.detector.common;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.reference-cache")
+public class ReferenceCacheProperties {
+
+    /**
+     * Maximum number of entities kept per cache (persons, accounts, devices).
+     */
+    @Min(1)
+    private long maximumSize = 100000;
+
+    /**
+     * Age after which the next read reloads an entry in the background, still serving the old value.
+     */
+    @Min(1)
+    private long refreshAfterWriteMillis = 20000;
+
+    /**
+     * Age after which an entry that was not refreshed is dropped, the upper bound for serving stale data.
+     */
+    @Min(1)
+    private long expireAfterWriteMillis = 120000;
+
+    /**
+     * Time a key the bulk endpoint did not return is treated as absent without asking again.
+     */
+    @Min(0)
+    private long absentTtlMillis = 5000;
+
+    /**
+     * Largest number of keys reloaded with one bulk call.
+     */
+    @Min(1)
+    private int refreshBatchSize = 500;
+
+    /**
+     * Time refreshes are collected before the bulk call is made.
+     */
+    @Min(0)
+    private long refreshBatchDelayMillis = 50;
+}
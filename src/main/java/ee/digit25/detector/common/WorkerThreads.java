@@ -0,0 +1,45 @@
+package ee.digit25.detector.common;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the worker threads of the application, virtual or platform depending on
+ * {@code detector.execution.virtual-threads}.
+ *
+ * In virtual mode blocking HTTP and JDBC calls release their carrier thread, so I/O concurrency is
+ * bounded by the API concurrency limiter and the connection pool rather than by thread counts.
+ */
+@Component
+@RequiredArgsConstructor
+public class WorkerThreads {
+
+    private final ExecutionProperties properties;
+
+    public boolean isVirtual() {
+        return properties.isVirtualThreads();
+    }
+
+    /**
+     * Unstarted long-running thread, platform threads are not daemons so they are drained on shutdown.
+     */
+    public Thread newThread(String name, Runnable task) {
+        Thread.Builder builder = isVirtual() ? Thread.ofVirtual() : Thread.ofPlatform().daemon(false);
+
+        return builder.name(name).unstarted(task);
+    }
+
+    /**
+     * Executor for short blocking tasks: a thread per task in virtual mode, otherwise a fixed pool.
+     */
+    public ExecutorService newExecutor(String namePrefix, int platformThreads) {
+        if (isVirtual()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix + "-", 0).factory());
+        }
+
+        return Executors.newFixedThreadPool(platformThreads, Thread.ofPlatform().name(namePrefix + "-", 0).daemon(true).factory());
+    }
+}
@@ -15,22 +15,14 @@ public class AccountValidator {
 
     private final AccountRequester requester;
 
-    public boolean isValidSenderAccount(String accountNumber, BigDecimal amount, String senderPersonCode, ValidationContext context) {
-        log.info("Validating sender account {}: checking closed, owner, and balance", accountNumber);
-
-        var account = context.getAccount(accountNumber);
-
-        return !account.getClosed()
-            && senderPersonCode.equals(account.getOwner())
-            && account.getBalance().compareTo(amount) >= 0;
+    public boolean isValidSenderAccount(int account, BigDecimal amount, int sender, ValidationContext context) {
+        return !context.isAccountClosed(account)
+            && context.accountOwner(account) == sender
+            && context.hasBalance(account, amount);
     }
 
-    public boolean isValidRecipientAccount(String accountNumber, String recipientPersonCode, ValidationContext context) {
-        log.info("Validating recipient account {}: checking closed and owner", accountNumber);
-
-        var account = context.getAccount(accountNumber);
-
-        return !account.getClosed()
-            && recipientPersonCode.equals(account.getOwner());
+    public boolean isValidRecipientAccount(int account, int recipient, ValidationContext context) {
+        return !context.isAccountClosed(account)
+            && context.accountOwner(account) == recipient;
     }
 }
@@ -1,72 +1,71 @@
 package ee.digit25.detector.domain.account.external;
 
 import ee.bitweb.core.retrofit.RetrofitRequestExecutor;
-import ee.digit25.detector.common.ApiRequestDeduplicator;
+import ee.digit25.detector.common.ReferenceCache;
+import ee.digit25.detector.common.ReferenceCacheFactory;
 import ee.digit25.detector.domain.account.external.api.AccountModel;
 import ee.digit25.detector.domain.account.external.api.AccountApi;
 import ee.digit25.detector.domain.account.external.api.AccountApiProperties;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class AccountRequester {
 
     private final AccountApi api;
     private final AccountApiProperties properties;
-    private final ApiRequestDeduplicator deduplicator;
-    private final CacheManager cacheManager;
+    private final ReferenceCache<AccountModel> cache;
+
+    public AccountRequester(AccountApi api, AccountApiProperties properties, ReferenceCacheFactory cacheFactory) {
+        this.api = api;
+        this.properties = properties;
+        this.cache = cacheFactory.build("accounts", this::fetch, this::fetchAsync, AccountModel::getNumber);
+    }
 
-    @Cacheable(value = "accounts", key = "#accountNumber")
     public AccountModel get(String accountNumber) {
-        return deduplicator.deduplicate("account:" + accountNumber, () -> {
-            log.info("Requesting account {}", accountNumber);
-            return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), accountNumber));
-        });
+        return cache.get(accountNumber);
     }
 
-    public List<AccountModel> get(List<String> numbers) {
-        log.info("Requesting accounts with numbers {}", numbers);
+    /**
+     * Cached accounts are served from the cache, all others are fetched with one bulk call.
+     * Unknown accounts are left out of the result.
+     */
+    public Map<String, AccountModel> get(Collection<String> numbers) {
+        return cache.getAll(numbers);
+    }
 
-        Cache cache = cacheManager.getCache("accounts");
-        List<AccountModel> results = new ArrayList<>();
-        List<String> missingNumbers = new ArrayList<>();
+    /**
+     * Same as {@link #get(Collection)} without blocking, misses are fetched asynchronously.
+     */
+    public CompletableFuture<Map<String, AccountModel>> getAsync(Collection<String> numbers) {
+        return cache.getAllAsync(numbers);
+    }
 
-        // Check cache first
-        for (String number : numbers) {
-            AccountModel cached = cache.get(number, AccountModel.class);
-            if (cached != null) {
-                results.add(cached);
-            } else {
-                missingNumbers.add(number);
-            }
-        }
+    public List<AccountModel> get(int pageNumber, int pageSize) {
+        log.debug("Requesting accounts page {} of size {}", pageNumber, pageSize);
 
-        // Fetch only missing items via API
-        if (!missingNumbers.isEmpty()) {
-            List<AccountModel> fetched = RetrofitRequestExecutor.executeRaw(
-                api.get(properties.getToken(), missingNumbers)
-            );
+        return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), pageNumber, pageSize));
+    }
+
+    public void cache(List<AccountModel> accounts) {
+        cache.putAll(accounts);
+    }
 
-            // Cache newly fetched items
-            fetched.forEach(account -> cache.put(account.getNumber(), account));
-            results.addAll(fetched);
-        }
+    private List<AccountModel> fetch(List<String> numbers) {
+        log.debug("Requesting accounts with numbers {}", numbers);
 
-        return results;
+        return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), numbers));
     }
 
-    public List<AccountModel> get(int pageNumber, int pageSize) {
-        log.info("Requesting accounts page {} of size {}", pageNumber, pageSize);
+    private CompletableFuture<List<AccountModel>> fetchAsync(List<String> numbers) {
+        log.debug("Requesting accounts with numbers {} asynchronously", numbers);
 
-        return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), pageNumber, pageSize));
+        return api.getAsync(properties.getToken(), numbers);
     }
 }
@@ -4,6 +4,7 @@ import retrofit2.Call;
 import retrofit2.http.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface AccountApi {
 
@@ -15,4 +16,7 @@ public interface AccountApi {
 
     @GET("/accounts")
     Call<List<AccountModel>> get(@Header("Authorization") String token, @Query("pageNumber") int pageNumber, @Query("pageSize") int pageSize);
+
+    @POST("/accounts/by-numbers")
+    CompletableFuture<List<AccountModel>> getAsync(@Header("Authorization") String token, @Body List<String> numbers);
 }
@@ -1,6 +1,7 @@
 package ee.digit25.detector.domain.account.external.api;
 
 import ee.bitweb.core.retrofit.builder.SpringAwareRetrofitBuilder;
+import ee.digit25.detector.common.ApiConcurrencyLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
@@ -13,11 +14,14 @@ public class AccountApiConfig {
 
     private final SpringAwareRetrofitBuilder builder;
     private final AccountApiProperties properties;
+    private final ApiConcurrencyLimiter limiter;
 
     @Bean
     public AccountApi accountApi() {
         log.info("Creating Accounts API");
 
-        return builder.create(properties.getBaseUrl(), AccountApi.class).build();
+        return builder.create(properties.getBaseUrl(), AccountApi.class)
+                .add(limiter)
+                .build();
     }
 }
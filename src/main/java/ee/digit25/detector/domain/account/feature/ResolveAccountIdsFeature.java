@@ -0,0 +1,27 @@
+package ee.digit25.detector.domain.account.feature;
+
+import ee.digit25.detector.common.BulkIdResolver;
+import ee.digit25.detector.common.IdCacheProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+
+@Service
+public class ResolveAccountIdsFeature {
+
+    private final BulkIdResolver resolver;
+
+    public ResolveAccountIdsFeature(JdbcTemplate jdbcTemplate, IdCacheProperties properties) {
+        this.resolver = new BulkIdResolver(jdbcTemplate, "account", "number", properties.getMaximumSize());
+    }
+
+    /**
+     * Returns the ids of the given account numbers, creating the rows that do not exist yet.
+     */
+    public Map<String, Long> byNumbers(Collection<String> numbers) {
+
+        return resolver.resolve(numbers);
+    }
+}
@@ -13,15 +13,11 @@ public class DeviceValidator {
 
     private final DeviceRequester requester;
 
-    public boolean isValid(String mac, ValidationContext context) {
-        log.info("Validating device {}", mac);
-
-        return !isBlacklisted(mac, context);
+    public boolean isValid(int device, ValidationContext context) {
+        return !isBlacklisted(device, context);
     }
 
-    public boolean isBlacklisted(String mac, ValidationContext context) {
-        log.info("Starting to check if device is blacklisted");
-
-        return context.getDevice(mac).getIsBlacklisted();
+    public boolean isBlacklisted(int device, ValidationContext context) {
+        return context.isDeviceBlacklisted(device);
     }
 }
@@ -1,72 +1,71 @@
 package ee.digit25.detector.domain.device.external;
 
 import ee.bitweb.core.retrofit.RetrofitRequestExecutor;
-import ee.digit25.detector.common.ApiRequestDeduplicator;
+import ee.digit25.detector.common.ReferenceCache;
+import ee.digit25.detector.common.ReferenceCacheFactory;
 import ee.digit25.detector.domain.device.external.api.DeviceModel;
 import ee.digit25.detector.domain.device.external.api.DeviceApi;
 import ee.digit25.detector.domain.device.external.api.DeviceApiProperties;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class DeviceRequester {
 
     private final DeviceApi api;
     private final DeviceApiProperties properties;
-    private final ApiRequestDeduplicator deduplicator;
-    private final CacheManager cacheManager;
+    private final ReferenceCache<DeviceModel> cache;
+
+    public DeviceRequester(DeviceApi api, DeviceApiProperties properties, ReferenceCacheFactory cacheFactory) {
+        this.api = api;
+        this.properties = properties;
+        this.cache = cacheFactory.build("devices", this::fetch, this::fetchAsync, DeviceModel::getMac);
+    }
 
-    @Cacheable(value = "devices", key = "#mac")
     public DeviceModel get(String mac) {
-        return deduplicator.deduplicate("device:" + mac, () -> {
-            log.info("Requesting device with mac({})", mac);
-            return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), mac));
-        });
+        return cache.get(mac);
     }
 
-    public List<DeviceModel> get(List<String> macs) {
-        log.info("Requesting devices with macs {}", macs);
+    /**
+     * Cached devices are served from the cache, all others are fetched with one bulk call.
+     * Unknown devices are left out of the result.
+     */
+    public Map<String, DeviceModel> get(Collection<String> macs) {
+        return cache.getAll(macs);
+    }
 
-        Cache cache = cacheManager.getCache("devices");
-        List<DeviceModel> results = new ArrayList<>();
-        List<String> missingMacs = new ArrayList<>();
+    /**
+     * Same as {@link #get(Collection)} without blocking, misses are fetched asynchronously.
+     */
+    public CompletableFuture<Map<String, DeviceModel>> getAsync(Collection<String> macs) {
+        return cache.getAllAsync(macs);
+    }
 
-        // Check cache first
-        for (String mac : macs) {
-            DeviceModel cached = cache.get(mac, DeviceModel.class);
-            if (cached != null) {
-                results.add(cached);
-            } else {
-                missingMacs.add(mac);
-            }
-        }
+    public List<DeviceModel> get(int pageNumber, int pageSize) {
+        log.debug("Requesting devices page {} of size {}", pageNumber, pageSize);
 
-        // Fetch only missing items via API
-        if (!missingMacs.isEmpty()) {
-            List<DeviceModel> fetched = RetrofitRequestExecutor.executeRaw(
-                api.get(properties.getToken(), missingMacs)
-            );
+        return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), pageNumber, pageSize));
+    }
+
+    public void cache(List<DeviceModel> devices) {
+        cache.putAll(devices);
+    }
 
-            // Cache newly fetched items
-            fetched.forEach(device -> cache.put(device.getMac(), device));
-            results.addAll(fetched);
-        }
+    private List<DeviceModel> fetch(List<String> macs) {
+        log.debug("Requesting devices with macs {}", macs);
 
-        return results;
+        return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), macs));
     }
 
-    public List<DeviceModel> get(int pageNumber, int pageSize) {
-        log.info("Requesting persons page {} of size {}", pageNumber, pageSize);
+    private CompletableFuture<List<DeviceModel>> fetchAsync(List<String> macs) {
+        log.debug("Requesting devices with macs {} asynchronously", macs);
 
-        return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), pageNumber, pageSize));
+        return api.getAsync(properties.getToken(), macs);
     }
 }
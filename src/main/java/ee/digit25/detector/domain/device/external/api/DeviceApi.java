@@ -4,6 +4,7 @@ import retrofit2.Call;
 import retrofit2.http.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface DeviceApi {
 
@@ -15,4 +16,7 @@ public interface DeviceApi {
 
     @GET("/devices")
     Call<List<DeviceModel>> get(@Header("Authorization") String token, @Query("pageNumber") int pageNumber, @Query("pageSize") int pageSize);
+
+    @POST("/devices/by-macs")
+    CompletableFuture<List<DeviceModel>> getAsync(@Header("Authorization") String token, @Body List<String> macs);
 }
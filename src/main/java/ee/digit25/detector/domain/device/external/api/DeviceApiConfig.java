@@ -1,6 +1,7 @@
 package ee.digit25.detector.domain.device.external.api;
 
 import ee.bitweb.core.retrofit.builder.SpringAwareRetrofitBuilder;
+import ee.digit25.detector.common.ApiConcurrencyLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
@@ -13,11 +14,14 @@ public class DeviceApiConfig {
 
     private final SpringAwareRetrofitBuilder builder;
     private final DeviceApiProperties properties;
+    private final ApiConcurrencyLimiter limiter;
 
     @Bean
     public DeviceApi deviceApi() {
         log.info("Creating Device API");
 
-        return builder.create(properties.getBaseUrl(), DeviceApi.class).build();
+        return builder.create(properties.getBaseUrl(), DeviceApi.class)
+                .add(limiter)
+                .build();
     }
 }
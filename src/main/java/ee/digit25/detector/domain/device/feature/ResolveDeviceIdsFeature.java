@@ -0,0 +1,27 @@
+package ee.digit25.detector.domain.device.feature;
+
+import ee.digit25.detector.common.BulkIdResolver;
+import ee.digit25.detector.common.IdCacheProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+
+@Service
+public class ResolveDeviceIdsFeature {
+
+    private final BulkIdResolver resolver;
+
+    public ResolveDeviceIdsFeature(JdbcTemplate jdbcTemplate, IdCacheProperties properties) {
+        this.resolver = new BulkIdResolver(jdbcTemplate, "device", "mac", properties.getMaximumSize());
+    }
+
+    /**
+     * Returns the ids of the given device MACs, creating the rows that do not exist yet.
+     */
+    public Map<String, Long> byMacs(Collection<String> macs) {
+
+        return resolver.resolve(macs);
+    }
+}
@@ -13,13 +13,10 @@ public class PersonValidator {
 
     private final PersonRequester requester;
 
-    public boolean isValid(String personCode, ValidationContext context) {
-        log.info("Validating person ({}): checking warrant, contract, and blacklist status", personCode);
-
-        var person = context.getPerson(personCode);
-
-        return !person.getWarrantIssued()
-            && person.getHasContract()
-            && !person.getBlacklisted();
+    /**
+     * Warrant, contract and blacklist status are checked once per batch when the context is compiled.
+     */
+    public boolean isValid(int person, ValidationContext context) {
+        return context.isPersonValid(person);
     }
 }
@@ -1,72 +1,71 @@
 package ee.digit25.detector.domain.person.external;
 
 import ee.bitweb.core.retrofit.RetrofitRequestExecutor;
-import ee.digit25.detector.common.ApiRequestDeduplicator;
+import ee.digit25.detector.common.ReferenceCache;
+import ee.digit25.detector.common.ReferenceCacheFactory;
 import ee.digit25.detector.domain.person.external.api.PersonModel;
 import ee.digit25.detector.domain.person.external.api.PersonApi;
 import ee.digit25.detector.domain.person.external.api.PersonApiProperties;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.Cache;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class PersonRequester {
 
     private final PersonApi api;
     private final PersonApiProperties properties;
-    private final ApiRequestDeduplicator deduplicator;
-    private final CacheManager cacheManager;
+    private final ReferenceCache<PersonModel> cache;
+
+    public PersonRequester(PersonApi api, PersonApiProperties properties, ReferenceCacheFactory cacheFactory) {
+        this.api = api;
+        this.properties = properties;
+        this.cache = cacheFactory.build("persons", this::fetch, this::fetchAsync, PersonModel::getPersonCode);
+    }
 
-    @Cacheable(value = "persons", key = "#personCode")
     public PersonModel get(String personCode) {
-        return deduplicator.deduplicate("person:" + personCode, () -> {
-            log.info("Requesting person with personCode {}", personCode);
-            return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), personCode));
-        });
+        return cache.get(personCode);
     }
 
-    public List<PersonModel> get(List<String> personCodes) {
-        log.info("Requesting persons with personCodes {}", personCodes);
+    /**
+     * Cached persons are served from the cache, all others are fetched with one bulk call.
+     * Unknown persons are left out of the result.
+     */
+    public Map<String, PersonModel> get(Collection<String> personCodes) {
+        return cache.getAll(personCodes);
+    }
 
-        Cache cache = cacheManager.getCache("persons");
-        List<PersonModel> results = new ArrayList<>();
-        List<String> missingCodes = new ArrayList<>();
+    /**
+     * Same as {@link #get(Collection)} without blocking, misses are fetched asynchronously.
+     */
+    public CompletableFuture<Map<String, PersonModel>> getAsync(Collection<String> personCodes) {
+        return cache.getAllAsync(personCodes);
+    }
 
-        // Check cache first
-        for (String code : personCodes) {
-            PersonModel cached = cache.get(code, PersonModel.class);
-            if (cached != null) {
-                results.add(cached);
-            } else {
-                missingCodes.add(code);
-            }
-        }
+    public List<PersonModel> get(int pageNumber, int pageSize) {
+        log.debug("Requesting persons page {} of size {}", pageNumber, pageSize);
 
-        // Fetch only missing items via API
-        if (!missingCodes.isEmpty()) {
-            List<PersonModel> fetched = RetrofitRequestExecutor.executeRaw(
-                api.get(properties.getToken(), missingCodes)
-            );
+        return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), pageNumber, pageSize));
+    }
+
+    public void cache(List<PersonModel> persons) {
+        cache.putAll(persons);
+    }
 
-            // Cache newly fetched items
-            fetched.forEach(person -> cache.put(person.getPersonCode(), person));
-            results.addAll(fetched);
-        }
+    private List<PersonModel> fetch(List<String> personCodes) {
+        log.debug("Requesting persons with personCodes {}", personCodes);
 
-        return results;
+        return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), personCodes));
     }
 
-    public List<PersonModel> get(int pageNumber, int pageSize) {
-        log.info("Requesting persons page {} of size {}", pageNumber, pageSize);
+    private CompletableFuture<List<PersonModel>> fetchAsync(List<String> personCodes) {
+        log.debug("Requesting persons with personCodes {} asynchronously", personCodes);
 
-        return RetrofitRequestExecutor.executeRaw(api.get(properties.getToken(), pageNumber, pageSize));
+        return api.getAsync(properties.getToken(), personCodes);
     }
 }
@@ -4,6 +4,7 @@ import retrofit2.Call;
 import retrofit2.http.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface PersonApi {
 
@@ -15,4 +16,7 @@ public interface PersonApi {
 
     @GET("/persons")
     Call<List<PersonModel>> get(@Header("Authorization") String token, @Query("pageNumber") int pageNumber, @Query("pageSize") int pageSize);
+
+    @POST("/persons/by-person-codes")
+    CompletableFuture<List<PersonModel>> getAsync(@Header("Authorization") String token, @Body List<String> personCodes);
 }
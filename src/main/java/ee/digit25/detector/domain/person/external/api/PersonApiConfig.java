@@ -1,6 +1,7 @@
 package ee.digit25.detector.domain.person.external.api;
 
 import ee.bitweb.core.retrofit.builder.SpringAwareRetrofitBuilder;
+import ee.digit25.detector.common.ApiConcurrencyLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
@@ -13,11 +14,14 @@ public class PersonApiConfig {
 
     private final SpringAwareRetrofitBuilder builder;
     private final PersonApiProperties properties;
+    private final ApiConcurrencyLimiter limiter;
 
     @Bean
     public PersonApi personApi() {
         log.info("Creating Persons API");
 
-        return builder.create(properties.getBaseUrl(), PersonApi.class).build();
+        return builder.create(properties.getBaseUrl(), PersonApi.class)
+                .add(limiter)
+                .build();
     }
 }
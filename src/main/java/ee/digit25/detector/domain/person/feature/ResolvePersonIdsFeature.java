@@ -0,0 +1,27 @@
+package ee.digit25.detector.domain.person.feature;
+
+import ee.digit25.detector.common.BulkIdResolver;
+import ee.digit25.detector.common.IdCacheProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Map;
+
+@Service
+public class ResolvePersonIdsFeature {
+
+    private final BulkIdResolver resolver;
+
+    public ResolvePersonIdsFeature(JdbcTemplate jdbcTemplate, IdCacheProperties properties) {
+        this.resolver = new BulkIdResolver(jdbcTemplate, "person", "person_code", properties.getMaximumSize());
+    }
+
+    /**
+     * Returns the ids of the given person codes, creating the rows that do not exist yet.
+     */
+    public Map<String, Long> byPersonCodes(Collection<String> personCodes) {
+
+        return resolver.resolve(personCodes);
+    }
+}
@@ -1,11 +1,8 @@
 package ee.digit25.detector.domain.transaction;
 
-import ee.digit25.detector.domain.account.AccountValidator;
-import ee.digit25.detector.domain.device.DeviceValidator;
-import ee.digit25.detector.domain.person.PersonValidator;
-import ee.digit25.detector.domain.transaction.common.Transaction;
 import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
-import ee.digit25.detector.domain.transaction.feature.FindTransactionsFeature;
+import ee.digit25.detector.domain.transaction.rule.RuleEngine;
+import ee.digit25.detector.domain.transaction.rule.RuleInput;
 import ee.digit25.detector.process.ValidationContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,58 +15,37 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class TransactionValidator {
 
-    private final PersonValidator personValidator;
-    private final DeviceValidator deviceValidator;
-    private final AccountValidator accountValidator;
-    private final FindTransactionsFeature findTransactionsFeature;
+    /**
+     * Rejection reason of transactions referencing a person, account or device the APIs do not know.
+     */
+    public static final int UNKNOWN_PARTY = 255;
 
-    public boolean isLegitimate(TransactionModel transaction, ValidationContext context) {
-        LocalDateTime validationTime = LocalDateTime.now();
-
-        boolean isLegitimate = true;
-
-        isLegitimate &= personValidator.isValid(transaction.getRecipient(), context);
-        isLegitimate &= personValidator.isValid(transaction.getSender(), context);
-        isLegitimate &= deviceValidator.isValid(transaction.getDeviceMac(), context);
-        isLegitimate &= accountValidator.isValidSenderAccount(transaction.getSenderAccount(), transaction.getAmount(), transaction.getSender(), context);
-        isLegitimate &= accountValidator.isValidRecipientAccount(transaction.getRecipientAccount(), transaction.getRecipient(), context);
-        isLegitimate &= validateNoBurstTransaction(transaction, validationTime);
-        isLegitimate &= validateNoMultideviceTransactions(transaction, validationTime);
-        isLegitimate &= validateValidHistory(transaction, validationTime);
-
-        return isLegitimate;
-    }
-
-    private boolean validateNoBurstTransaction(TransactionModel transaction, LocalDateTime validationTime) {
-        LocalDateTime since = validationTime.minusSeconds(30);
-
-        long transactionCountSince = findTransactionsFeature.bySender(transaction.getSender(), since)
-                .size();
+    private final RuleEngine ruleEngine;
 
-        return countBelowThreshold(transactionCountSince, 10);
-    }
-
-    private boolean validateNoMultideviceTransactions(TransactionModel transaction, LocalDateTime validationTime) {
-        LocalDateTime since = validationTime.minusSeconds(10);
-
-        long differentDeviceCountSince = findTransactionsFeature.bySender(transaction.getSender(), since)
-                .stream()
-                .map(t -> t.getDevice().getMac())
-                .distinct()
-                .count();
-
-        return countBelowThreshold(differentDeviceCountSince, 2);
+    public boolean isLegitimate(TransactionModel transaction, ValidationContext context) {
+        return validate(transaction, context) == RuleEngine.PASSED;
     }
 
-    private boolean validateValidHistory(TransactionModel transaction, LocalDateTime validationTime) {
-        LocalDateTime since = validationTime.minusMinutes(1);
+    /**
+     * @return {@link RuleEngine#PASSED}, the number of the failing rule or {@link #UNKNOWN_PARTY}
+     */
+    public int validate(TransactionModel transaction, ValidationContext context) {
+        int sender = context.personIndex(transaction.getSender());
+        int recipient = context.personIndex(transaction.getRecipient());
+        int senderAccount = context.accountIndex(transaction.getSenderAccount());
+        int recipientAccount = context.accountIndex(transaction.getRecipientAccount());
+        int device = context.deviceIndex(transaction.getDeviceMac());
+
+        if (sender == ValidationContext.UNKNOWN || recipient == ValidationContext.UNKNOWN
+                || senderAccount == ValidationContext.UNKNOWN || recipientAccount == ValidationContext.UNKNOWN
+                || device == ValidationContext.UNKNOWN) {
+            log.debug("Transaction {} references an unknown person, account or device", transaction.getId());
+            return UNKNOWN_PARTY;
+        }
 
-        return findTransactionsFeature.bySender(transaction.getSender(), since)
-                .stream()
-                .allMatch(Transaction::isLegitimate);
-    }
+        LocalDateTime validationTime = LocalDateTime.now();
 
-    private boolean countBelowThreshold(long count, int threshold) {
-        return count < threshold;
+        return ruleEngine.evaluate(new RuleInput(
+                transaction, context, sender, recipient, senderAccount, recipientAccount, device, validationTime));
     }
 }
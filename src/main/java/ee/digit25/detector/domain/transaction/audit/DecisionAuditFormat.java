@@ -0,0 +1,39 @@
+package ee.digit25.detector.domain.transaction.audit;
+
+/**
+ * Layout of the decision audit files. All values are big-endian.
+ *
+ * A file starts with a {@value #HEADER_SIZE} byte header: magic, version, record size and rule count
+ * as ints, followed by the name of every rule as a short length and its UTF-8 bytes, so the rule
+ * numbers in the records can be read back without the application.
+ *
+ * The header is followed by fixed size records, one per decision:
+ * <pre>
+ *  0 long  decided at, epoch millis
+ *  8 int   latency from fetch to decision, micros
+ * 12 byte  verdict
+ * 13 byte  reason: 0 when passed, the failing rule number or 255 for unknown parties
+ * 14 byte  transaction id length
+ * 15 byte  reserved
+ * 16 byte[48] transaction id, ASCII
+ * </pre>
+ * Files are preallocated and zero filled, the first record with a zero timestamp marks the end.
+ */
+final class DecisionAuditFormat {
+
+    static final int MAGIC = 0x44415544;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 4096;
+    static final int RECORD_SIZE = 64;
+    static final int ID_OFFSET = 16;
+    static final int ID_LENGTH = RECORD_SIZE - ID_OFFSET;
+
+    static final byte VERIFIED = 1;
+    static final byte REJECTED = 2;
+
+    static final String FILE_PREFIX = "decisions-";
+    static final String FILE_SUFFIX = ".audit";
+
+    private DecisionAuditFormat() {
+    }
+}
@@ -0,0 +1,38 @@
+package ee.digit25.detector.domain.transaction.audit;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.audit")
+public class DecisionAuditProperties {
+
+    /**
+     * Whether every decision is written to the audit trail.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Directory of the audit files, relative to the working directory unless absolute.
+     */
+    private String directory = "audit";
+
+    /**
+     * Size of one audit file, a new file is started once it is full.
+     */
+    @Min(1)
+    private int fileSizeMb = 64;
+
+    /**
+     * Audit files kept, the oldest ones are deleted on rotation.
+     */
+    @Min(1)
+    private int maxFiles = 10;
+}
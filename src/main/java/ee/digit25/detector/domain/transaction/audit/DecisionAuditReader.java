@@ -0,0 +1,127 @@
+package ee.digit25.detector.domain.transaction.audit;
+
+import ee.digit25.detector.domain.transaction.TransactionValidator;
+import ee.digit25.detector.domain.transaction.rule.RuleEngine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static ee.digit25.detector.domain.transaction.audit.DecisionAuditFormat.*;
+
+/**
+ * Prints decision audit files as text, one line per decision:
+ * <pre>
+ * decided at, verdict, latency, rule, transaction id
+ * </pre>
+ * Arguments are audit files or directories of them, directories are read in file order. Run with
+ * {@code ./gradlew readAudit -PauditFiles=audit}.
+ */
+public final class DecisionAuditReader {
+
+    private DecisionAuditReader() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: DecisionAuditReader <file or directory>...");
+            System.exit(1);
+        }
+
+        for (String arg : args) {
+            for (Path file : files(Path.of(arg))) {
+                print(file);
+            }
+        }
+    }
+
+    private static List<Path> files(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return List.of(path);
+        }
+
+        try (Stream<Path> listing = Files.list(path)) {
+            return listing
+                    .filter(file -> file.getFileName().toString().startsWith(FILE_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static void print(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            System.err.println(file + ": not a decision audit file");
+            return;
+        }
+
+        int version = buffer.getInt();
+        int recordSize = buffer.getInt();
+        if (version != VERSION || recordSize != RECORD_SIZE) {
+            System.err.println(file + ": unsupported version " + version + " with record size " + recordSize);
+            return;
+        }
+
+        List<String> rules = new ArrayList<>();
+        int ruleCount = buffer.getInt();
+        for (int i = 0; i < ruleCount; i++) {
+            byte[] name = new byte[buffer.getShort()];
+            buffer.get(name);
+            rules.add(new String(name, StandardCharsets.UTF_8));
+        }
+
+        System.out.println("# " + file + ", rules " + rules);
+
+        byte[] id = new byte[ID_LENGTH];
+        long count = 0;
+
+        for (int position = HEADER_SIZE; position + RECORD_SIZE <= buffer.capacity(); position += RECORD_SIZE) {
+            buffer.position(position);
+
+            long decidedAt = buffer.getLong();
+            if (decidedAt == 0) {
+                break;
+            }
+
+            int latencyMicros = buffer.getInt();
+            byte verdict = buffer.get();
+            int reason = buffer.get() & 0xFF;
+            int idLength = buffer.get() & 0xFF;
+            buffer.get();
+            buffer.get(id, 0, idLength);
+
+            System.out.println(Instant.ofEpochMilli(decidedAt)
+                    + " " + (verdict == VERIFIED ? "VERIFIED" : "REJECTED")
+                    + " " + latencyMicros + "us"
+                    + " " + describe(reason, rules)
+                    + " " + new String(id, 0, idLength, StandardCharsets.US_ASCII));
+            count++;
+        }
+
+        System.out.println("# " + count + " decisions");
+    }
+
+    private static String describe(int reason, List<String> rules) {
+        if (reason == RuleEngine.PASSED) {
+            return "-";
+        }
+
+        if (reason == TransactionValidator.UNKNOWN_PARTY) {
+            return "UnknownParty";
+        }
+
+        return reason <= rules.size() ? rules.get(reason - 1) : "Rule" + reason;
+    }
+}
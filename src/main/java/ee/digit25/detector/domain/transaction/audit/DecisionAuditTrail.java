@@ -0,0 +1,200 @@
+package ee.digit25.detector.domain.transaction.audit;
+
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import ee.digit25.detector.domain.transaction.rule.RuleEngine;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import static ee.digit25.detector.domain.transaction.audit.DecisionAuditFormat.*;
+
+/**
+ * Binary audit trail of every decision, replacing the per-transaction log lines.
+ *
+ * Records have the fixed layout of {@link DecisionAuditFormat} and are written straight into a
+ * memory-mapped file, so recording a batch neither formats strings nor allocates, and the OS writes
+ * the pages back in the background. Once a file is full the next one is started and the oldest
+ * files beyond the configured count are deleted. Read the files with {@link DecisionAuditReader}.
+ *
+ * A failure to open a file is logged once and the records are dropped until the next rotation,
+ * the audit trail never holds up decisions.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DecisionAuditTrail {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final DecisionAuditProperties properties;
+    private final RuleEngine ruleEngine;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private MappedByteBuffer buffer;
+    private volatile Path file;
+    private long retryAfterMillis;
+
+    /**
+     * @param rejectionReasons reason of each rejected transaction, in the same order
+     * @param latencyNanos     time from the fetch of the batch until its decisions were queued for sending
+     */
+    public void record(List<TransactionModel> verified, List<TransactionModel> rejected, List<Byte> rejectionReasons,
+                       long latencyNanos) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+
+        long decidedAt = System.currentTimeMillis();
+        int latencyMicros = (int) Math.min(Integer.MAX_VALUE, latencyNanos / 1000);
+
+        lock.lock();
+        try {
+            for (int i = 0; i < verified.size(); i++) {
+                write(verified.get(i), VERIFIED, RuleEngine.PASSED, decidedAt, latencyMicros);
+            }
+
+            for (int i = 0; i < rejected.size(); i++) {
+                write(rejected.get(i), REJECTED, rejectionReasons.get(i), decidedAt, latencyMicros);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedRateString = "${detector.processor.stats-interval-millis:10000}")
+    public void logStats() {
+        if (!properties.isEnabled() || file == null) {
+            return;
+        }
+
+        log.info("Audit stats: recorded={} dropped={} file={}", recorded.sumThenReset(), dropped.sumThenReset(), file);
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            if (buffer != null) {
+                buffer.force();
+                buffer = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(TransactionModel transaction, byte verdict, int reason, long decidedAt, int latencyMicros) {
+        if ((buffer == null || buffer.remaining() < RECORD_SIZE) && !rotate(decidedAt)) {
+            dropped.increment();
+            return;
+        }
+
+        String id = transaction.getId();
+        int idLength = Math.min(id.length(), ID_LENGTH);
+        int start = buffer.position();
+
+        buffer.putLong(decidedAt)
+                .putInt(latencyMicros)
+                .put(verdict)
+                .put((byte) reason)
+                .put((byte) idLength)
+                .put((byte) 0);
+
+        // Ids are ASCII, encoding them by hand keeps the hot path free of byte arrays
+        for (int i = 0; i < idLength; i++) {
+            buffer.put((byte) id.charAt(i));
+        }
+
+        buffer.position(start + RECORD_SIZE);
+        recorded.increment();
+    }
+
+    private boolean rotate(long now) {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+
+        if (now < retryAfterMillis) {
+            return false;
+        }
+
+        try {
+            Path directory = Path.of(properties.getDirectory());
+            Files.createDirectories(directory);
+
+            Path next = directory.resolve(FILE_PREFIX + LocalDateTime.now().format(FILE_TIMESTAMP) + FILE_SUFFIX);
+            long size = (long) properties.getFileSizeMb() * 1024 * 1024;
+
+            try (FileChannel channel = FileChannel.open(next,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // The mapping stays valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            }
+
+            writeHeader(buffer);
+            file = next;
+            log.info("Writing decision audit trail to {}", file);
+
+            deleteOldFiles(directory);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to open a decision audit file, dropping records for a minute", e);
+            buffer = null;
+            retryAfterMillis = now + 60_000;
+            return false;
+        }
+    }
+
+    private void writeHeader(MappedByteBuffer target) {
+        List<String> ruleNames = ruleEngine.ruleNames();
+
+        target.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(RECORD_SIZE)
+                .putInt(ruleNames.size());
+
+        for (String name : ruleNames) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            target.putShort((short) bytes.length).put(bytes);
+        }
+
+        target.position(HEADER_SIZE);
+    }
+
+    private void deleteOldFiles(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            // Timestamped names sort in creation order
+            files = listing
+                    .filter(path -> path.getFileName().toString().startsWith(FILE_PREFIX))
+                    .filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+
+        for (int i = 0; i < files.size() - properties.getMaxFiles(); i++) {
+            Files.deleteIfExists(files.get(i));
+            log.info("Deleted decision audit file {}", files.get(i));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ee.digit25.detector.domain.transaction.common;
+
+public interface DecidedTransactionView {
+
+    String getExternalId();
+
+    boolean isLegitimate();
+}
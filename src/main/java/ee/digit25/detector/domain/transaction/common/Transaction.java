@@ -24,6 +24,11 @@ public class Transaction {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    /**
+     * Id of the transaction in the transactions API.
+     */
+    private String externalId;
+
     private boolean legitimate;
 
     private BigDecimal amount;
@@ -0,0 +1,98 @@
+package ee.digit25.detector.domain.transaction.common;
+
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import lombok.RequiredArgsConstructor;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Streams decided transactions into the transaction table with the PostgreSQL COPY protocol.
+ *
+ * The identity id makes Hibernate send one INSERT per row, COPY writes the whole batch in a single
+ * round-trip. Rows are sent in CSV format, all values are numbers, booleans and ISO timestamps
+ * except the external id, which is quoted.
+ *
+ * COPY cannot skip conflicting rows, so the batch is copied into a temporary staging table and moved
+ * over with one INSERT that skips transactions already stored. Writing the same batch twice, e.g.
+ * retrying one whose commit was lost, stores it once. Must run inside a transaction, the staging
+ * table is emptied on commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionCopyWriter {
+
+    private static final String COLUMNS =
+            "legitimate, amount, sender_id, sender_account_id, recipient_id, recipient_account_id, device_id, timestamp, deadline, external_id";
+
+    private static final String CREATE_STAGING_SQL = "CREATE TEMPORARY TABLE IF NOT EXISTS transaction_staging (" +
+            "legitimate BOOLEAN, amount decimal(10, 2), sender_id BIGINT, sender_account_id BIGINT, recipient_id BIGINT, " +
+            "recipient_account_id BIGINT, device_id BIGINT, timestamp TIMESTAMP WITHOUT TIME ZONE, " +
+            "deadline TIMESTAMP WITHOUT TIME ZONE, external_id TEXT) ON COMMIT DELETE ROWS";
+
+    private static final String COPY_SQL = "COPY transaction_staging (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    private static final String INSERT_SQL = "INSERT INTO transaction (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM transaction_staging " +
+            "ON CONFLICT (external_id, timestamp) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return number of rows written, without the ones already stored
+     */
+    public long write(List<TransactionDecision> decisions, TransactionParties parties) {
+        byte[] rows = toCsv(decisions, parties).getBytes(StandardCharsets.UTF_8);
+
+        jdbcTemplate.execute(CREATE_STAGING_SQL);
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class)
+                        .getCopyAPI()
+                        .copyIn(COPY_SQL, new ByteArrayInputStream(rows));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return jdbcTemplate.update(INSERT_SQL);
+    }
+
+    private String toCsv(List<TransactionDecision> decisions, TransactionParties parties) {
+        StringBuilder csv = new StringBuilder(decisions.size() * 96);
+
+        for (TransactionDecision decision : decisions) {
+            TransactionModel model = decision.getTransaction();
+
+            csv.append(decision.isLegitimate() ? 't' : 'f').append(',')
+                    .append(model.getAmount().toPlainString()).append(',')
+                    .append(parties.personId(model.getSender())).append(',')
+                    .append(parties.accountId(model.getSenderAccount())).append(',')
+                    .append(parties.personId(model.getRecipient())).append(',')
+                    .append(parties.accountId(model.getRecipientAccount())).append(',')
+                    .append(parties.deviceId(model.getDeviceMac())).append(',');
+            appendTimestamp(csv, model.getTimestamp()).append(',');
+            appendTimestamp(csv, model.getDeadline()).append(',');
+            appendQuoted(csv, model.getId()).append('\n');
+        }
+
+        return csv.toString();
+    }
+
+    private StringBuilder appendTimestamp(StringBuilder csv, LocalDateTime timestamp) {
+        // An empty unquoted field is NULL in CSV format
+        return timestamp == null ? csv : csv.append(timestamp);
+    }
+
+    private StringBuilder appendQuoted(StringBuilder csv, String value) {
+        return value == null ? csv : csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -0,0 +1,15 @@
+package ee.digit25.detector.domain.transaction.common;
+
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class TransactionDecision {
+
+    private final TransactionModel transaction;
+    private final boolean legitimate;
+}
@@ -0,0 +1,14 @@
+package ee.digit25.detector.domain.transaction.common;
+
+import java.time.LocalDateTime;
+
+public interface TransactionHistoryView {
+
+    String getSender();
+
+    String getDeviceMac();
+
+    LocalDateTime getTimestamp();
+
+    boolean isLegitimate();
+}
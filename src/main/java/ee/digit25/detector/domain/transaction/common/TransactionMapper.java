@@ -1,30 +1,69 @@
 package ee.digit25.detector.domain.transaction.common;
 
-import ee.digit25.detector.domain.account.feature.GetOrCreateAccountFeature;
-import ee.digit25.detector.domain.device.feature.GetOrCreateDeviceFeature;
-import ee.digit25.detector.domain.person.feature.GetOrCreatePersonFeature;
+import ee.digit25.detector.domain.account.common.AccountRepository;
+import ee.digit25.detector.domain.account.feature.ResolveAccountIdsFeature;
+import ee.digit25.detector.domain.device.common.DeviceRepository;
+import ee.digit25.detector.domain.device.feature.ResolveDeviceIdsFeature;
+import ee.digit25.detector.domain.person.common.PersonRepository;
+import ee.digit25.detector.domain.person.feature.ResolvePersonIdsFeature;
 import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 @Component
 @RequiredArgsConstructor
 public class TransactionMapper {
 
-    private final GetOrCreatePersonFeature getOrCreatePersonFeature;
-    private final GetOrCreateAccountFeature getOrCreateAccountFeature;
-    private final GetOrCreateDeviceFeature getOrCreateDeviceFeature;
+    private final ResolvePersonIdsFeature resolvePersonIdsFeature;
+    private final ResolveAccountIdsFeature resolveAccountIdsFeature;
+    private final ResolveDeviceIdsFeature resolveDeviceIdsFeature;
+    private final PersonRepository personRepository;
+    private final AccountRepository accountRepository;
+    private final DeviceRepository deviceRepository;
+
+    /**
+     * Resolves all persons, accounts and devices of the decisions in bulk, creating missing rows.
+     */
+    public TransactionParties resolveParties(List<TransactionDecision> decisions) {
+        Set<String> personCodes = new HashSet<>();
+        Set<String> accountNumbers = new HashSet<>();
+        Set<String> deviceMacs = new HashSet<>();
+
+        for (TransactionDecision decision : decisions) {
+            TransactionModel model = decision.getTransaction();
+            personCodes.add(model.getSender());
+            personCodes.add(model.getRecipient());
+            accountNumbers.add(model.getSenderAccount());
+            accountNumbers.add(model.getRecipientAccount());
+            deviceMacs.add(model.getDeviceMac());
+        }
+
+        return new TransactionParties(
+                resolvePersonIdsFeature.byPersonCodes(personCodes),
+                resolveAccountIdsFeature.byNumbers(accountNumbers),
+                resolveDeviceIdsFeature.byMacs(deviceMacs)
+        );
+    }
 
-    public Transaction toEntity(TransactionModel model, boolean legitimate) {
+    /**
+     * Maps a decision to an entity. Related entities are set as references by id, none of them is loaded.
+     */
+    public Transaction toEntity(TransactionDecision decision, TransactionParties parties) {
+        TransactionModel model = decision.getTransaction();
         Transaction transaction = new Transaction();
 
-        transaction.setLegitimate(legitimate);
+        transaction.setExternalId(model.getId());
+        transaction.setLegitimate(decision.isLegitimate());
         transaction.setAmount(model.getAmount());
-        transaction.setSender(getOrCreatePersonFeature.byPersonCode(model.getSender()));
-        transaction.setSenderAccount(getOrCreateAccountFeature.byNumber(model.getSenderAccount()));
-        transaction.setRecipient(getOrCreatePersonFeature.byPersonCode(model.getRecipient()));
-        transaction.setRecipientAccount(getOrCreateAccountFeature.byNumber(model.getRecipientAccount()));
-        transaction.setDevice(getOrCreateDeviceFeature.byMac(model.getDeviceMac()));
+        transaction.setSender(personRepository.getReferenceById(parties.personId(model.getSender())));
+        transaction.setSenderAccount(accountRepository.getReferenceById(parties.accountId(model.getSenderAccount())));
+        transaction.setRecipient(personRepository.getReferenceById(parties.personId(model.getRecipient())));
+        transaction.setRecipientAccount(accountRepository.getReferenceById(parties.accountId(model.getRecipientAccount())));
+        transaction.setDevice(deviceRepository.getReferenceById(parties.deviceId(model.getDeviceMac())));
         transaction.setTimestamp(model.getTimestamp());
         transaction.setDeadline(model.getDeadline());
 
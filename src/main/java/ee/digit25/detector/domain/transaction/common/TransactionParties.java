@@ -0,0 +1,40 @@
+package ee.digit25.detector.domain.transaction.common;
+
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Row ids of the persons, accounts and devices referenced by a set of transactions.
+ */
+@RequiredArgsConstructor
+public class TransactionParties {
+
+    private final Map<String, Long> personIds;
+    private final Map<String, Long> accountIds;
+    private final Map<String, Long> deviceIds;
+
+    public Long personId(String personCode) {
+        return personIds.get(personCode);
+    }
+
+    public Long accountId(String accountNumber) {
+        return accountIds.get(accountNumber);
+    }
+
+    public Long deviceId(String mac) {
+        return deviceIds.get(mac);
+    }
+
+    /**
+     * @return whether every party of the transaction has an id, parties with null keys never do
+     */
+    public boolean resolvedAll(TransactionModel model) {
+        return personId(model.getSender()) != null
+                && personId(model.getRecipient()) != null
+                && accountId(model.getSenderAccount()) != null
+                && accountId(model.getRecipientAccount()) != null
+                && deviceId(model.getDeviceMac()) != null;
+    }
+}
@@ -0,0 +1,14 @@
+package ee.digit25.detector.domain.transaction.common;
+
+public interface TransactionPartiesView {
+
+    String getSender();
+
+    String getRecipient();
+
+    String getSenderAccount();
+
+    String getRecipientAccount();
+
+    String getDeviceMac();
+}
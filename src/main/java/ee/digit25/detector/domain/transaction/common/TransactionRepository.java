@@ -1,23 +1,54 @@
 package ee.digit25.detector.domain.transaction.common;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long>, JpaSpecificationExecutor<Transaction> {
 
-    @Query("SELECT t FROM Transaction t " +
-           "JOIN FETCH t.sender s " +
-           "JOIN FETCH t.device d " +
-           "WHERE s.personCode = :senderCode AND t.timestamp > :since")
-    List<Transaction> findBySenderAndTimestampAfter(
-        @Param("senderCode") String senderCode,
-        @Param("since") LocalDateTime since
-    );
+    @Query("SELECT s.personCode AS sender, d.mac AS deviceMac, t.timestamp AS timestamp, t.legitimate AS legitimate " +
+           "FROM Transaction t " +
+           "JOIN t.sender s " +
+           "JOIN t.device d " +
+           "WHERE t.timestamp > :since")
+    List<TransactionHistoryView> findHistoryAfter(@Param("since") LocalDateTime since);
+
+    /**
+     * Latest decided transactions first, rows written before external ids were stored are skipped.
+     */
+    @Query("SELECT t.externalId AS externalId, t.legitimate AS legitimate " +
+           "FROM Transaction t " +
+           "WHERE t.timestamp > :since AND t.externalId IS NOT NULL " +
+           "ORDER BY t.timestamp DESC")
+    List<DecidedTransactionView> findDecidedAfter(@Param("since") LocalDateTime since, Limit limit);
+
+    @Query("SELECT t.externalId FROM Transaction t WHERE t.externalId IN :externalIds")
+    List<String> findExternalIdsIn(@Param("externalIds") Collection<String> externalIds);
+
+    /**
+     * Streams the parties of recent transactions, must be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.personCode AS sender, r.personCode AS recipient, " +
+           "sa.number AS senderAccount, ra.number AS recipientAccount, d.mac AS deviceMac " +
+           "FROM Transaction t " +
+           "JOIN t.sender s " +
+           "JOIN t.recipient r " +
+           "JOIN t.senderAccount sa " +
+           "JOIN t.recipientAccount ra " +
+           "JOIN t.device d " +
+           "WHERE t.timestamp > :since")
+    Stream<TransactionPartiesView> streamPartiesAfter(@Param("since") LocalDateTime since);
 }
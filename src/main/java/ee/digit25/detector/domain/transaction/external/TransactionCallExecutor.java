@@ -0,0 +1,305 @@
+package ee.digit25.detector.domain.transaction.external;
+
+import ee.digit25.detector.common.CircuitBreaker;
+import ee.digit25.detector.common.CircuitBreakerOpenException;
+import ee.digit25.detector.common.LatencyWindow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Executes calls of the transaction endpoints with retries, hedging and a circuit breaker.
+ *
+ * Attempts failing with an I/O error, 429 or a 5xx are retried up to the configured attempts with
+ * exponential backoff and full jitter; other errors are thrown right away. A retried getUnverified
+ * only follows a failed one, whose transactions come back once their lease expires.
+ *
+ * Hedged calls send a second, identical request when the first has not answered within the
+ * configured percentile of recent latencies, and use whichever answers first. The other one is
+ * cancelled, or its result discarded if it already arrived. Only idempotent calls may be hedged:
+ * verifying or rejecting a transaction again leaves it decided the same way. getUnverified is not,
+ * the API leases the transactions it returns, so a discarded response holds a whole batch back.
+ *
+ * All calls share one circuit breaker. Once it opens calls fail fast with a
+ * {@link CircuitBreakerOpenException} instead of piling up on an API that is down.
+ */
+@Slf4j
+@Component
+public class TransactionCallExecutor {
+
+    private static final int LATENCY_WINDOW = 512;
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final TransactionResilienceProperties properties;
+    private final CircuitBreaker breaker;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public TransactionCallExecutor(TransactionResilienceProperties properties) {
+        this.properties = properties;
+        this.breaker = new CircuitBreaker(
+                "transactions-api", properties.getBreakerFailureThreshold(), properties.getBreakerOpenMillis());
+    }
+
+    @FunctionalInterface
+    private interface Attempt<T> {
+
+        T run() throws IOException, InterruptedException;
+    }
+
+    /**
+     * @return the response body of the first successful attempt
+     */
+    public <T> T execute(String operation, Call<T> call) {
+        return withRetries(operation, () -> {
+            long start = System.nanoTime();
+            T body = bodyOf(call.clone().execute());
+            latencies(operation).record(System.nanoTime() - start);
+
+            return body;
+        });
+    }
+
+    /**
+     * Like {@link #execute}, each attempt hedged with a second request once it is slower than usual.
+     *
+     * @param discard releases the result of a request that lost the race, e.g. closes a streamed body
+     */
+    public <T> T executeHedged(String operation, Call<T> call, Consumer<T> discard) {
+        if (!properties.isHedgeEnabled()) {
+            return execute(operation, call);
+        }
+
+        return withRetries(operation, () -> hedged(operation, call, discard));
+    }
+
+    public CircuitBreaker.State breakerState() {
+        return breaker.getState();
+    }
+
+    @Scheduled(fixedRateString = "${detector.processor.stats-interval-millis:10000}")
+    public void logStats() {
+        StringBuilder percentiles = new StringBuilder();
+        latencies.forEach((operation, window) -> percentiles.append(' ').append(operation)
+                .append(".p95=").append(window.percentile(95) / 1_000_000).append("ms"));
+
+        log.info("Transaction API stats: breaker={} opened={} calls={} retries={} failures={} rejected={} hedges={} hedgeWins={}{}",
+                breaker.getState(), breaker.openedAndReset(), calls.sumThenReset(), retries.sumThenReset(),
+                failures.sumThenReset(), rejected.sumThenReset(), hedges.sumThenReset(), hedgeWins.sumThenReset(),
+                percentiles);
+    }
+
+    private <T> T withRetries(String operation, Attempt<T> attempt) {
+        calls.increment();
+
+        for (int number = 1; ; number++) {
+            try {
+                breaker.acquire();
+            } catch (CircuitBreakerOpenException e) {
+                rejected.increment();
+                throw e;
+            }
+
+            try {
+                T result = attempt.run();
+                breaker.onSuccess();
+
+                return result;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UncheckedIOException(new InterruptedIOException("Interrupted during " + operation));
+            } catch (IOException | RuntimeException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw unchecked(e);
+                }
+
+                if (!isRetryable(e)) {
+                    // The API answered, it is up
+                    breaker.onSuccess();
+                    throw unchecked(e);
+                }
+
+                breaker.onFailure();
+
+                if (number >= properties.getMaxAttempts()) {
+                    failures.increment();
+                    log.warn("{} failed after {} attempts", operation, number);
+                    throw unchecked(e);
+                }
+
+                retries.increment();
+                log.debug("{} attempt {} failed, retrying", operation, number, e);
+                backoff(operation, number);
+            }
+        }
+    }
+
+    private <T> T hedged(String operation, Call<T> call, Consumer<T> discard) throws IOException, InterruptedException {
+        LatencyWindow window = latencies(operation);
+        long start = System.nanoTime();
+        CompletableFuture<T> primary = enqueue(call.clone(), discard);
+
+        try {
+            T body = primary.get(hedgeDelayNanos(window), TimeUnit.NANOSECONDS);
+            window.record(System.nanoTime() - start);
+
+            return body;
+        } catch (TimeoutException e) {
+            hedges.increment();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            primary.cancel(true);
+            throw e;
+        }
+
+        CompletableFuture<T> hedge = enqueue(call.clone(), discard);
+        CompletableFuture<T> winner = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+
+        race(primary, winner, failed, discard, false);
+        race(hedge, winner, failed, discard, true);
+
+        try {
+            T body = winner.get();
+            // The slower request keeps the window honest about the tail
+            window.record(System.nanoTime() - start);
+
+            return body;
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } finally {
+            primary.cancel(true);
+            hedge.cancel(true);
+        }
+    }
+
+    private <T> void race(CompletableFuture<T> request, CompletableFuture<T> winner, AtomicInteger failed,
+                          Consumer<T> discard, boolean isHedge) {
+        request.whenComplete((body, e) -> {
+            if (e == null) {
+                if (winner.complete(body)) {
+                    if (isHedge) {
+                        hedgeWins.increment();
+                    }
+                } else {
+                    discard.accept(body);
+                }
+            } else if (failed.incrementAndGet() == 2) {
+                winner.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Starts the call on the OkHttp dispatcher. Cancelling the future cancels the call, a body
+     * arriving after that is discarded.
+     */
+    private <T> CompletableFuture<T> enqueue(Call<T> call, Consumer<T> discard) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        call.enqueue(new Callback<>() {
+            @Override
+            public void onResponse(Call<T> call, Response<T> response) {
+                if (!response.isSuccessful()) {
+                    future.completeExceptionally(new HttpException(response));
+                } else if (!future.complete(response.body()) && response.body() != null) {
+                    discard.accept(response.body());
+                }
+            }
+
+            @Override
+            public void onFailure(Call<T> call, Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+
+        future.whenComplete((body, e) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+
+        return future;
+    }
+
+    private long hedgeDelayNanos(LatencyWindow window) {
+        long floor = properties.getHedgeMinDelayMillis() * 1_000_000;
+
+        if (window.size() < MIN_HEDGE_SAMPLES) {
+            return floor;
+        }
+
+        return Math.max(floor, window.percentile(properties.getHedgePercentile()));
+    }
+
+    private void backoff(String operation, int attempt) {
+        long ceiling = Math.min(properties.getMaxBackoffMillis(),
+                properties.getInitialBackoffMillis() << Math.min(attempt - 1, 20));
+
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted during " + operation));
+        }
+    }
+
+    private LatencyWindow latencies(String operation) {
+        return latencies.computeIfAbsent(operation, ignored -> new LatencyWindow(LATENCY_WINDOW));
+    }
+
+    private static <T> T bodyOf(Response<T> response) {
+        if (!response.isSuccessful()) {
+            throw new HttpException(response);
+        }
+
+        return response.body();
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof IOException) {
+            return true;
+        }
+
+        return e instanceof HttpException http && (http.code() == TOO_MANY_REQUESTS || http.code() >= 500);
+    }
+
+    private static RuntimeException unchecked(Exception e) {
+        return e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+    }
+
+    private static IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+
+        if (cause instanceof IOException io) {
+            return io;
+        }
+
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+
+        return new IOException(cause);
+    }
+}
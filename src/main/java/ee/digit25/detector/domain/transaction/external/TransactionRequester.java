@@ -1,26 +1,101 @@
 package ee.digit25.detector.domain.transaction.external;
 
-import ee.bitweb.core.retrofit.RetrofitRequestExecutor;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
 import ee.digit25.detector.domain.transaction.external.api.TransactionApiProperties;
 import ee.digit25.detector.domain.transaction.external.api.TransactionsApi;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.ResponseBody;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TransactionRequester {
 
     private final TransactionsApi api;
     private final TransactionApiProperties properties;
+    private final TransactionCallExecutor calls;
+    private final ObjectReader transactionReader;
 
+    public TransactionRequester(
+            TransactionsApi api,
+            TransactionApiProperties properties,
+            TransactionCallExecutor calls,
+            ObjectMapper objectMapper
+    ) {
+        this.api = api;
+        this.properties = properties;
+        this.calls = calls;
+        this.transactionReader = objectMapper.copy()
+                .registerModule(new JavaTimeModule())
+                .readerFor(TransactionModel.class);
+    }
+
+    /**
+     * Runs while the response is open, holding its connection and concurrency limiter permit, so it
+     * must not block.
+     */
+    @FunctionalInterface
+    public interface ChunkHandler {
+
+        void handle(List<TransactionModel> chunk);
+    }
+
+    /**
+     * Not hedged: the API leases every transaction it returns to the caller, the transactions of a
+     * discarded response would be held back until their lease expires.
+     */
     public List<TransactionModel> getUnverified(int amount) {
-        log.info("Requesting a batch of unverified transactions of size {}", amount);
-        return RetrofitRequestExecutor.executeRaw(api.getUnverified(properties.getToken(), amount));
+        log.debug("Requesting a batch of unverified transactions of size {}", amount);
+        return calls.execute("getUnverified", api.getUnverified(properties.getToken(), amount));
     }
 
+    /**
+     * Requests a batch of unverified transactions and parses the response array as it downloads.
+     * Every complete chunk of chunkSize transactions is passed to the handler as soon as it is
+     * parsed, so neither the whole body nor the whole list is ever held in memory.
+     *
+     * If the response breaks off, the chunks already handed over stay handed over and the partial
+     * chunk is dropped, its transactions are returned again by a later request. Not hedged, like
+     * {@link #getUnverified}.
+     *
+     * @return the last chunk, shorter than chunkSize and possibly empty
+     */
+    public List<TransactionModel> streamUnverified(int amount, int chunkSize, ChunkHandler handler) {
+        log.debug("Streaming a batch of unverified transactions of size {}", amount);
+
+        int received = 0;
+        List<TransactionModel> chunk = new ArrayList<>(chunkSize);
+
+        try (ResponseBody body = calls.execute("getUnverified", api.streamUnverified(properties.getToken(), amount));
+             JsonParser parser = transactionReader.createParser(body.byteStream())) {
+
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected an array of transactions, got " + parser.currentToken());
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                chunk.add(transactionReader.readValue(parser));
+                received++;
+
+                if (chunk.size() == chunkSize) {
+                    handler.handle(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read unverified transactions after " + received, e);
+        }
+
+        return chunk;
+    }
 }
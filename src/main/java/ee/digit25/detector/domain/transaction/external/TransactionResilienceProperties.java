@@ -0,0 +1,61 @@
+package ee.digit25.detector.domain.transaction.external;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.api.resilience")
+public class TransactionResilienceProperties {
+
+    /**
+     * Attempts per transaction endpoint call, including the first one.
+     */
+    @Min(1)
+    private int maxAttempts = 3;
+
+    /**
+     * Backoff before the first retry, doubled for every further one. The actual pause is random
+     * between zero and the backoff.
+     */
+    @Min(0)
+    private long initialBackoffMillis = 50;
+
+    @Min(0)
+    private long maxBackoffMillis = 1000;
+
+    /**
+     * Sends a second verify or reject when the first one takes longer than the observed latency percentile.
+     */
+    private boolean hedgeEnabled = true;
+
+    @DecimalMin("50")
+    @DecimalMax("100")
+    private double hedgePercentile = 95;
+
+    /**
+     * Lower bound of the hedge delay, also used until enough latencies have been observed.
+     */
+    @Min(1)
+    private long hedgeMinDelayMillis = 100;
+
+    /**
+     * Consecutive failed attempts that open the circuit breaker.
+     */
+    @Min(1)
+    private int breakerFailureThreshold = 10;
+
+    /**
+     * Time calls are rejected once the breaker is open, afterwards one trial call is let through.
+     */
+    @Min(1)
+    private long breakerOpenMillis = 5000;
+}
@@ -1,6 +1,5 @@
 package ee.digit25.detector.domain.transaction.external;
 
-import ee.bitweb.core.retrofit.RetrofitRequestExecutor;
 import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
 import ee.digit25.detector.domain.transaction.external.api.TransactionApiProperties;
 import ee.digit25.detector.domain.transaction.external.api.TransactionsApi;
@@ -17,30 +16,37 @@ public class TransactionVerifier {
 
     private final TransactionsApi api;
     private final TransactionApiProperties properties;
+    private final TransactionCallExecutor calls;
 
     public void verify(TransactionModel transaction) {
-        log.info("Verifying transaction {}", transaction.getId());
+        log.debug("Verifying transaction {}", transaction.getId());
 
-        RetrofitRequestExecutor.executeRaw(api.verify(properties.getToken(), transaction.getId()));
+        calls.executeHedged("verify", api.verify(properties.getToken(), transaction.getId()), ignored -> { });
     }
 
     public void reject(TransactionModel transaction) {
-        log.info("Rejecting transaction {}", transaction.getId());
+        log.debug("Rejecting transaction {}", transaction.getId());
 
-        RetrofitRequestExecutor.executeRaw(api.reject(properties.getToken(), transaction.getId()));
+        calls.executeHedged("reject", api.reject(properties.getToken(), transaction.getId()), ignored -> { });
     }
 
     public void verify(List<TransactionModel> transactions) {
-        List<String> ids = transactions.stream().map(TransactionModel::getId).toList();
-        log.info("Verifying transactions {}", ids);
-
-        RetrofitRequestExecutor.executeRaw(api.verify(properties.getToken(), ids));
+        verifyIds(transactions.stream().map(TransactionModel::getId).toList());
     }
 
     public void reject(List<TransactionModel> transactions) {
-        List<String> ids = transactions.stream().map(TransactionModel::getId).toList();
-        log.info("Rejecting transactions {}", ids);
+        rejectIds(transactions.stream().map(TransactionModel::getId).toList());
+    }
+
+    public void verifyIds(List<String> ids) {
+        log.debug("Verifying {} transactions", ids.size());
+
+        calls.executeHedged("verify", api.verify(properties.getToken(), ids), ignored -> { });
+    }
+
+    public void rejectIds(List<String> ids) {
+        log.debug("Rejecting {} transactions", ids.size());
 
-        RetrofitRequestExecutor.executeRaw(api.reject(properties.getToken(), ids));
+        calls.executeHedged("reject", api.reject(properties.getToken(), ids), ignored -> { });
     }
 }
@@ -1,6 +1,7 @@
 package ee.digit25.detector.domain.transaction.external.api;
 
 import ee.bitweb.core.retrofit.builder.SpringAwareRetrofitBuilder;
+import ee.digit25.detector.common.ApiConcurrencyLimiter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
@@ -13,11 +14,14 @@ public class TransactionApiConfig {
 
     private final SpringAwareRetrofitBuilder builder;
     private final TransactionApiProperties properties;
+    private final ApiConcurrencyLimiter limiter;
 
     @Bean
     public TransactionsApi transactionsApi() {
         log.info("Creating Transactions API");
 
-        return builder.create(properties.getBaseUrl(), TransactionsApi.class).build();
+        return builder.create(properties.getBaseUrl(), TransactionsApi.class)
+                .add(limiter)
+                .build();
     }
 }
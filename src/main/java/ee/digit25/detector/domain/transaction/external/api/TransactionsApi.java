@@ -1,5 +1,6 @@
 package ee.digit25.detector.domain.transaction.external.api;
 
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.*;
 
@@ -10,6 +11,13 @@ public interface TransactionsApi {
     @GET("/transactions/unverified")
     Call<List<TransactionModel>> getUnverified(@Header("Authorization") String token, @Query("amount") int amount);
 
+    /**
+     * Same as {@link #getUnverified}, the body is left unread for incremental parsing.
+     */
+    @Streaming
+    @GET("/transactions/unverified")
+    Call<ResponseBody> streamUnverified(@Header("Authorization") String token, @Query("amount") int amount);
+
     @POST("/transactions/{id}/verify")
     Call<Void> verify(@Header("Authorization") String token, @Path("id") String transactionId);
 
@@ -1,12 +1,19 @@
 package ee.digit25.detector.domain.transaction.feature;
 
 import ee.digit25.detector.domain.transaction.common.Transaction;
+import ee.digit25.detector.domain.transaction.common.TransactionCopyWriter;
+import ee.digit25.detector.domain.transaction.common.TransactionDecision;
+import ee.digit25.detector.domain.transaction.common.TransactionMapper;
+import ee.digit25.detector.domain.transaction.common.TransactionParties;
 import ee.digit25.detector.domain.transaction.common.TransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Slf4j
 @Service
@@ -14,16 +21,60 @@ import java.util.List;
 public class PersistTransactionFeature {
 
     private final TransactionRepository repository;
+    private final TransactionMapper mapper;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionCopyWriter copyWriter;
+    private final PersistTransactionProperties properties;
 
     public Transaction save(Transaction transaction) {
-        log.info("Saving transaction: {}", transaction);
+        log.debug("Saving transaction: {}", transaction);
 
         return repository.save(transaction);
     }
 
     public List<Transaction> saveAll(List<Transaction> transactions) {
-        log.info("Batch saving {} transactions", transactions.size());
+        log.debug("Batch saving {} transactions", transactions.size());
 
         return repository.saveAll(transactions);
     }
+
+    public void saveDecisions(List<TransactionDecision> decisions) {
+        log.debug("Batch saving {} decided transactions with {}", decisions.size(), properties.getMode());
+
+        // Resolved before the transaction starts, the id cache must only ever see committed rows
+        TransactionParties parties = mapper.resolveParties(decisions);
+
+        // All party columns are NOT NULL, one such row would fail the whole write
+        List<TransactionDecision> storable = decisions.stream()
+                .filter(decision -> parties.resolvedAll(decision.getTransaction()))
+                .toList();
+
+        if (storable.size() < decisions.size()) {
+            log.warn("Not storing {} decided transactions with a missing sender, recipient, account or device",
+                    decisions.size() - storable.size());
+        }
+
+        if (storable.isEmpty()) {
+            return;
+        }
+
+        // Both paths skip transactions already stored, a retried write does not store them twice
+        switch (properties.getMode()) {
+            case COPY -> transactionTemplate.executeWithoutResult(status -> copyWriter.write(storable, parties));
+            case JPA -> transactionTemplate.executeWithoutResult(status -> repository.saveAll(
+                    withoutStored(storable).stream()
+                            .map(decision -> mapper.toEntity(decision, parties))
+                            .toList()
+            ));
+        }
+    }
+
+    private List<TransactionDecision> withoutStored(List<TransactionDecision> decisions) {
+        Set<String> stored = new HashSet<>(repository.findExternalIdsIn(
+                decisions.stream().map(decision -> decision.getTransaction().getId()).toList()));
+
+        return stored.isEmpty() ? decisions : decisions.stream()
+                .filter(decision -> !stored.contains(decision.getTransaction().getId()))
+                .toList();
+    }
 }
@@ -0,0 +1,68 @@
+package ee.digit25.detector.domain.transaction.feature;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.persistence")
+public class PersistTransactionProperties {
+
+    /**
+     * How decided transactions are written to the transaction table.
+     */
+    private Mode mode = Mode.COPY;
+
+    /**
+     * Decided transactions waiting to be written. Producers block once it is full.
+     */
+    @Min(1)
+    private int queueCapacity = 10000;
+
+    /**
+     * Largest number of transactions written in one go, queued batches are coalesced up to it.
+     */
+    @Min(1)
+    private int maxWriteSize = 1000;
+
+    /**
+     * Attempts at writing one batch before it is dropped.
+     */
+    @Min(1)
+    private int maxWriteAttempts = 10;
+
+    /**
+     * Pause after the first failed write, doubled after every further failure of the same batch.
+     */
+    @Min(1)
+    private long retryDelayMillis = 200;
+
+    /**
+     * Longest pause between two attempts.
+     */
+    @Min(1)
+    private long maxRetryDelayMillis = 5000;
+
+    /**
+     * Maximum time to wait for the queue to drain on shutdown.
+     */
+    @Min(0)
+    private long shutdownTimeoutMillis = 30000;
+
+    public enum Mode {
+        /**
+         * Hibernate saveAll, one INSERT per row because of the identity id.
+         */
+        JPA,
+        /**
+         * PostgreSQL COPY, one round-trip per write.
+         */
+        COPY
+    }
+}
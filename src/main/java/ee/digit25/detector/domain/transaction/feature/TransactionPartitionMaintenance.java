@@ -0,0 +1,154 @@
+package ee.digit25.detector.domain.transaction.feature;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the transaction table partitioned by the hour: creates partitions ahead of the current hour
+ * and drops partitions whose range ended more than the retention ago, rolling them up into
+ * transaction_daily_summary first.
+ *
+ * Rows that ended up in the default partition are rolled up and deleted by the same retention.
+ *
+ * The current hour is read from the database clock, like the migration that created the first
+ * partitions, so the bounds line up even when the JVM runs in another time zone.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionPartitionMaintenance {
+
+    private static final String DEFAULT_PARTITION = "transaction_default";
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HH");
+
+    private static final String CURRENT_HOUR_SQL = "SELECT date_trunc('hour', LOCALTIMESTAMP)";
+
+    private static final String PARTITIONS_SQL = "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) " +
+            "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'transaction'::regclass";
+
+    private static final String ROLL_UP_SQL = "INSERT INTO transaction_daily_summary AS s " +
+            "(day, sender_id, transactions, legitimate, amount) " +
+            "SELECT timestamp::date, sender_id, count(*), count(*) FILTER (WHERE legitimate), sum(amount) " +
+            "FROM %s WHERE timestamp < ? GROUP BY 1, 2 " +
+            "ON CONFLICT (day, sender_id) DO UPDATE SET " +
+            "transactions = s.transactions + EXCLUDED.transactions, " +
+            "legitimate = s.legitimate + EXCLUDED.legitimate, " +
+            "amount = s.amount + EXCLUDED.amount";
+
+    private final TransactionPartitionProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Scheduled(fixedDelayString = "${detector.partitions.maintenance-interval-millis:300000}")
+    public void maintain() {
+        LocalDateTime currentHour = jdbcTemplate.queryForObject(CURRENT_HOUR_SQL, LocalDateTime.class);
+        Map<String, LocalDateTime> partitions = findPartitions();
+
+        createAhead(partitions, currentHour);
+        dropExpired(partitions, currentHour.minusHours(properties.getRetentionHours()));
+    }
+
+    private void createAhead(Map<String, LocalDateTime> partitions, LocalDateTime currentHour) {
+        LocalDateTime start = partitions.values().stream()
+                .max(LocalDateTime::compareTo)
+                .filter(end -> end.isAfter(currentHour))
+                .orElse(currentHour);
+        LocalDateTime until = currentHour.plusHours(properties.getCreateAheadHours() + 1);
+
+        for (; start.isBefore(until); start = start.plusHours(1)) {
+            String name = "transaction_" + start.format(NAME_FORMAT);
+
+            String from = start.format(BOUND_FORMAT);
+            String to = start.plusHours(1).format(BOUND_FORMAT);
+
+            try {
+                // Locks the parent and scans the default partition, must not queue up behind writers
+                transactionTemplate.executeWithoutResult(status -> {
+                    setLockTimeout();
+                    jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF transaction " +
+                            "FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+                });
+                log.info("Created partition {}", name);
+            } catch (DataAccessException e) {
+                // Fails when the default partition already holds rows of this hour or the lock timed out
+                log.error("Failed to create partition {}", name, e);
+            }
+        }
+    }
+
+    private void dropExpired(Map<String, LocalDateTime> partitions, LocalDateTime cutoff) {
+        partitions.forEach((name, end) -> {
+            if (end.isAfter(cutoff)) {
+                return;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    setLockTimeout();
+                    rollUp(name, end);
+                    jdbcTemplate.execute("ALTER TABLE transaction DETACH PARTITION " + name);
+                    jdbcTemplate.execute("DROP TABLE " + name);
+                });
+                log.info("Dropped partition {} ending at {}", name, end);
+            } catch (DataAccessException e) {
+                log.error("Failed to drop partition {}", name, e);
+            }
+        });
+
+        try {
+            int deleted = transactionTemplate.execute(status -> {
+                setLockTimeout();
+                rollUp(DEFAULT_PARTITION, cutoff);
+                return jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE timestamp < ?", cutoff);
+            });
+
+            if (deleted > 0) {
+                log.warn("Deleted {} expired transactions from the default partition", deleted);
+            }
+        } catch (DataAccessException e) {
+            log.error("Failed to clean up the default partition", e);
+        }
+    }
+
+    private void rollUp(String partition, LocalDateTime before) {
+        if (properties.isRollUp()) {
+            jdbcTemplate.update(ROLL_UP_SQL.formatted(partition), before);
+        }
+    }
+
+    private void setLockTimeout() {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + properties.getLockTimeoutMillis());
+    }
+
+    /**
+     * @return partition name to the end of its range, the default partition has no range and is left out
+     */
+    private Map<String, LocalDateTime> findPartitions() {
+        Map<String, LocalDateTime> partitions = new HashMap<>();
+
+        jdbcTemplate.query(PARTITIONS_SQL, resultSet -> {
+            Matcher matcher = UPPER_BOUND.matcher(resultSet.getString(2));
+
+            if (matcher.find()) {
+                partitions.put(resultSet.getString(1), LocalDateTime.parse(matcher.group(1), BOUND_FORMAT));
+            }
+        });
+
+        return partitions;
+    }
+}
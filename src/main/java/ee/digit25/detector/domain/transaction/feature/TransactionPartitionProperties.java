@@ -0,0 +1,39 @@
+package ee.digit25.detector.domain.transaction.feature;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.partitions")
+public class TransactionPartitionProperties {
+
+    /**
+     * Hours a partition is kept after its range ended. History rules only look back one minute.
+     */
+    @Min(1)
+    private int retentionHours = 24;
+
+    /**
+     * Hourly partitions kept created ahead of the current hour.
+     */
+    @Min(1)
+    private int createAheadHours = 3;
+
+    /**
+     * Adds per-sender daily totals to transaction_daily_summary before a partition is dropped.
+     */
+    private boolean rollUp = true;
+
+    /**
+     * Time the maintenance waits for locks on the transaction table before giving up until the next run.
+     */
+    @Min(0)
+    private long lockTimeoutMillis = 5000;
+}
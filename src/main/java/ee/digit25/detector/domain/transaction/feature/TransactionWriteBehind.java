@@ -0,0 +1,186 @@
+package ee.digit25.detector.domain.transaction.feature;
+
+import ee.digit25.detector.common.WorkerThreads;
+import ee.digit25.detector.domain.transaction.common.TransactionDecision;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Asynchronous write-behind stage in front of {@link PersistTransactionFeature}.
+ *
+ * Decisions are queued and written by a single background thread, which drains everything queued so
+ * far (up to the max write size) into one write, so several pipeline batches end up in one write
+ * while Postgres is slow. The queue is bounded: when it is full {@link #submit} blocks, which pushes
+ * back through the pipeline to fetching.
+ *
+ * History rules never read the transaction table, they use the in-memory history index which is
+ * updated at decision time, so decided but not yet written transactions are already visible to them.
+ *
+ * A failed write is retried as is with exponential backoff, while the queue fills up behind it. Only
+ * after the max write attempts is the batch dropped, with an error naming the number of transactions.
+ *
+ * Stops after the processor on shutdown and writes out everything still queued.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TransactionWriteBehind implements SmartLifecycle {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    private final PersistTransactionProperties properties;
+    private final PersistTransactionFeature persistTransactionFeature;
+    private final WorkerThreads threads;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+
+    private BlockingQueue<TransactionDecision> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    /**
+     * Queues decisions for writing, blocking while the queue is full.
+     */
+    public void submit(List<TransactionDecision> decisions) throws InterruptedException {
+        for (TransactionDecision decision : decisions) {
+            queue.put(decision);
+        }
+    }
+
+    @Override
+    public void start() {
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        writer = threads.newThread("transaction-write-behind", this::run);
+        running = true;
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        log.info("Stopping transaction write-behind, {} transactions still queued", queue.size());
+        running = false;
+
+        try {
+            writer.join(properties.getShutdownTimeoutMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (writer.isAlive()) {
+            log.warn("Transaction write-behind did not drain in time, {} transactions not written", queue.size());
+            writer.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the processor, which uses the default phase.
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+
+    @Scheduled(fixedRateString = "${detector.processor.stats-interval-millis:10000}")
+    public void logStats() {
+        if (queue == null) {
+            return;
+        }
+
+        long count = writes.sumThenReset();
+        long transactions = written.sumThenReset();
+
+        log.info("Write-behind stats: queued={} writes={} written={} avgWriteSize={} avgWrite={}ms retries={} failed={}",
+                queue.size(), count, transactions,
+                count == 0 ? 0 : transactions / count,
+                count == 0 ? 0 : writeNanos.sumThenReset() / 1_000_000 / count,
+                retries.sumThenReset(), failed.sumThenReset());
+    }
+
+    private void run() {
+        List<TransactionDecision> pending = new ArrayList<>(properties.getMaxWriteSize());
+        int attempts = 0;
+
+        while (running || !queue.isEmpty() || !pending.isEmpty()) {
+            try {
+                if (pending.isEmpty()) {
+                    TransactionDecision first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                    if (first == null) {
+                        continue;
+                    }
+
+                    pending.add(first);
+                    queue.drainTo(pending, properties.getMaxWriteSize() - 1);
+                }
+
+                attempts++;
+                write(pending);
+
+                pending.clear();
+                attempts = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("Write-behind interrupted, {} transactions not written", pending.size() + queue.size());
+                return;
+            } catch (Exception e) {
+                if (attempts >= properties.getMaxWriteAttempts()) {
+                    failed.add(pending.size());
+                    log.error("Dropping {} transactions after {} failed write attempts", pending.size(), attempts, e);
+                    pending.clear();
+                    attempts = 0;
+                    continue;
+                }
+
+                long delay = Math.min(properties.getMaxRetryDelayMillis(),
+                        properties.getRetryDelayMillis() << Math.min(attempts - 1, 20));
+                retries.increment();
+                log.warn("Failed to write {} transactions (attempt {} of {}), retrying in {}ms",
+                        pending.size(), attempts, properties.getMaxWriteAttempts(), delay, e);
+
+                if (!backoff(delay)) {
+                    log.error("Write-behind interrupted, {} transactions not written", pending.size() + queue.size());
+                    return;
+                }
+            }
+        }
+    }
+
+    private boolean backoff(long delayMillis) {
+        try {
+            Thread.sleep(delayMillis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void write(List<TransactionDecision> decisions) {
+        long start = System.nanoTime();
+
+        persistTransactionFeature.saveDecisions(decisions);
+
+        writes.increment();
+        written.add(decisions.size());
+        writeNanos.add(System.nanoTime() - start);
+    }
+}
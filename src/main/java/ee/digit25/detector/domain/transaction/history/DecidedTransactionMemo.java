@@ -0,0 +1,136 @@
+package ee.digit25.detector.domain.transaction.history;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import ee.digit25.detector.common.WorkerThreads;
+import ee.digit25.detector.domain.transaction.common.DecidedTransactionView;
+import ee.digit25.detector.domain.transaction.common.TransactionRepository;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Verdicts of decided transactions by transactions API id, for transactions getUnverified returns
+ * again because their verify or reject call did not get through.
+ *
+ * A bounded Caffeine cache holds the verdicts, with a Bloom filter in front so the common case of a
+ * transaction never seen before is answered without touching the cache. The filter cannot forget
+ * evicted ids, once it has taken twice the cache size it is rebuilt from the cache contents on a
+ * background thread, the decide stage that crosses the threshold does not wait for it.
+ *
+ * Seeded from the recent rows of the transaction table at startup, so a restart does not validate
+ * and store the transactions decided before it once more.
+ */
+@Slf4j
+@Component
+public class DecidedTransactionMemo {
+
+    private final DecidedTransactionMemoProperties properties;
+    private final TransactionRepository repository;
+    private final WorkerThreads threads;
+    private final Cache<String, Boolean> verdicts;
+    private final LongAdder insertions = new LongAdder();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private volatile BloomFilter<CharSequence> filter;
+    // Filter being rebuilt, puts go into both until it replaces the current one
+    private volatile BloomFilter<CharSequence> next;
+
+    public DecidedTransactionMemo(
+            DecidedTransactionMemoProperties properties,
+            TransactionRepository repository,
+            WorkerThreads threads
+    ) {
+        this.properties = properties;
+        this.repository = repository;
+        this.threads = threads;
+        this.verdicts = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .build();
+        this.filter = newFilter();
+    }
+
+    @PostConstruct
+    public void seed() {
+        LocalDateTime since = LocalDateTime.now().minusHours(properties.getSeedHours());
+        List<DecidedTransactionView> decided = repository.findDecidedAfter(since, Limit.of((int) properties.getMaximumSize()));
+        decided.forEach(view -> put(view.getExternalId(), view.isLegitimate()));
+
+        log.info("Seeded decided transaction memo with {} transactions", decided.size());
+    }
+
+    /**
+     * @return earlier verdict of the transaction, null if it has not been decided
+     */
+    public Boolean verdict(String transactionId) {
+        if (!filter.mightContain(transactionId)) {
+            return null;
+        }
+
+        return verdicts.getIfPresent(transactionId);
+    }
+
+    public void record(List<TransactionModel> verified, List<TransactionModel> rejected) {
+        verified.forEach(transaction -> put(transaction.getId(), true));
+        rejected.forEach(transaction -> put(transaction.getId(), false));
+
+        if (insertions.sum() > properties.getMaximumSize() * 2 && rebuilding.compareAndSet(false, true)) {
+            threads.newThread("decided-memo-rebuild", this::rebuildFilter).start();
+        }
+    }
+
+    private void put(String transactionId, boolean legitimate) {
+        // Cache first: an id put before a rebuild starts is copied from the cache, one put while it
+        // runs goes into the new filter directly and one put after the swap sees the new filter
+        verdicts.put(transactionId, legitimate);
+
+        BloomFilter<CharSequence> rebuilt = next;
+        if (rebuilt != null) {
+            rebuilt.put(transactionId);
+        }
+
+        BloomFilter<CharSequence> current;
+        do {
+            current = filter;
+            current.put(transactionId);
+        } while (current != filter);
+
+        insertions.increment();
+    }
+
+    private void rebuildFilter() {
+        try {
+            BloomFilter<CharSequence> rebuilt = newFilter();
+            next = rebuilt;
+            insertions.reset();
+
+            verdicts.asMap().keySet().forEach(id -> {
+                rebuilt.put(id);
+                insertions.increment();
+            });
+
+            // Published only once filled, until then the old filter answers
+            filter = rebuilt;
+            next = null;
+
+            log.debug("Rebuilt decided transaction memo filter from {} transactions", verdicts.estimatedSize());
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private BloomFilter<CharSequence> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                properties.getMaximumSize() * 2, properties.getFalsePositiveProbability());
+    }
+}
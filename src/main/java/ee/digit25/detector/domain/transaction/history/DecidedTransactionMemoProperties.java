@@ -0,0 +1,37 @@
+package ee.digit25.detector.domain.transaction.history;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.decided-memo")
+public class DecidedTransactionMemoProperties {
+
+    /**
+     * Most decided transaction ids remembered, least recently used ones are evicted.
+     */
+    @Min(1)
+    private long maximumSize = 500000;
+
+    /**
+     * False positive rate of the Bloom filter in front of the memo at its expected size.
+     */
+    @DecimalMin("0.0001")
+    @DecimalMax("0.5")
+    private double falsePositiveProbability = 0.01;
+
+    /**
+     * How far back decided transactions are loaded from the transaction table at startup.
+     */
+    @Min(0)
+    private long seedHours = 24;
+}
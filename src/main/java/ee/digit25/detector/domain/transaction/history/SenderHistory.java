@@ -0,0 +1,116 @@
+package ee.digit25.detector.domain.transaction.history;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recent decisions of a single sender, kept as parallel primitive arrays.
+ *
+ * Entries are appended in decision order, which is not necessarily timestamp order, so every
+ * query scans the whole (short) window. Not thread safe, {@link TransactionHistoryIndex} holds
+ * {@link #lock} around every access. A ReentrantLock rather than a monitor, so virtual threads
+ * waiting for it do not pin their carrier. Once evicted a history is no longer in the index and
+ * must not be appended to.
+ */
+final class SenderHistory {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    final ReentrantLock lock = new ReentrantLock();
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private String[] devices = new String[INITIAL_CAPACITY];
+    private boolean[] legitimate = new boolean[INITIAL_CAPACITY];
+    private int size;
+    private boolean evicted;
+
+    void add(long timestamp, String device, boolean isLegitimate) {
+        if (size == timestamps.length) {
+            int capacity = size * 2;
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            devices = Arrays.copyOf(devices, capacity);
+            legitimate = Arrays.copyOf(legitimate, capacity);
+        }
+
+        timestamps[size] = timestamp;
+        devices[size] = device;
+        legitimate[size] = isLegitimate;
+        size++;
+    }
+
+    /**
+     * Drops every entry with a timestamp at or before the cutoff.
+     */
+    void prune(long cutoff) {
+        int kept = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] > cutoff) {
+                timestamps[kept] = timestamps[i];
+                devices[kept] = devices[i];
+                legitimate[kept] = legitimate[i];
+                kept++;
+            }
+        }
+
+        Arrays.fill(devices, kept, size, null);
+        size = kept;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isEvicted() {
+        return evicted;
+    }
+
+    void markEvicted() {
+        evicted = true;
+    }
+
+    int countAfter(long since) {
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] > since) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    int distinctDevicesAfter(long since) {
+        int count = 0;
+
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] > since && !seenBefore(i, since)) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    boolean allLegitimateAfter(long since) {
+        for (int i = 0; i < size; i++) {
+            if (timestamps[i] > since && !legitimate[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean seenBefore(int index, long since) {
+        for (int i = 0; i < index; i++) {
+            if (timestamps[i] > since && Objects.equals(devices[i], devices[index])) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
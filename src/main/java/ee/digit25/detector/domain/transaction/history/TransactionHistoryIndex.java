@@ -0,0 +1,135 @@
+package ee.digit25.detector.domain.transaction.history;
+
+import ee.digit25.detector.domain.transaction.common.TransactionHistoryView;
+import ee.digit25.detector.domain.transaction.common.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * In-memory, time-windowed history of decided transactions keyed by sender person code.
+ *
+ * Answers the history rules of the transaction validator without a database round-trip.
+ * Rebuilt from the last {@link #WINDOW} of the transaction table at startup and updated with
+ * every decision as it is made, so transactions earlier in the same batch are already visible.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransactionHistoryIndex {
+
+    /**
+     * Longest look-back of any history rule, older entries are dropped.
+     */
+    public static final Duration WINDOW = Duration.ofMinutes(1);
+
+    private final TransactionRepository repository;
+    private final ConcurrentMap<String, SenderHistory> histories = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void rebuild() {
+        List<TransactionHistoryView> recent = repository.findHistoryAfter(LocalDateTime.now().minus(WINDOW));
+        recent.forEach(view -> record(view.getSender(), view.getTimestamp(), view.getDeviceMac(), view.isLegitimate()));
+
+        log.info("Rebuilt transaction history index from {} transactions of {} senders", recent.size(), histories.size());
+    }
+
+    public void record(String sender, LocalDateTime timestamp, String deviceMac, boolean legitimate) {
+        long millis = toMillis(timestamp);
+
+        // The sender lock is never taken inside a map compute, waiting for it there would pin a
+        // virtual thread's carrier. A history evicted in between is retried with a fresh one.
+        while (true) {
+            SenderHistory history = histories.computeIfAbsent(sender, key -> new SenderHistory());
+
+            history.lock.lock();
+            try {
+                if (!history.isEvicted()) {
+                    history.add(millis, deviceMac, legitimate);
+                    return;
+                }
+            } finally {
+                history.lock.unlock();
+            }
+        }
+    }
+
+    public int countAfter(String sender, LocalDateTime since) {
+        SenderHistory history = histories.get(sender);
+
+        if (history == null) {
+            return 0;
+        }
+
+        return locked(history, () -> history.countAfter(toMillis(since)));
+    }
+
+    public int distinctDevicesAfter(String sender, LocalDateTime since) {
+        SenderHistory history = histories.get(sender);
+
+        if (history == null) {
+            return 0;
+        }
+
+        return locked(history, () -> history.distinctDevicesAfter(toMillis(since)));
+    }
+
+    public boolean allLegitimateAfter(String sender, LocalDateTime since) {
+        SenderHistory history = histories.get(sender);
+
+        if (history == null) {
+            return true;
+        }
+
+        return locked(history, () -> history.allLegitimateAfter(toMillis(since)));
+    }
+
+    public int senders() {
+        return histories.size();
+    }
+
+    @Scheduled(fixedDelay = 5000)
+    public void evictExpired() {
+        long cutoff = toMillis(LocalDateTime.now().minus(WINDOW));
+
+        for (Map.Entry<String, SenderHistory> entry : histories.entrySet()) {
+            SenderHistory history = entry.getValue();
+
+            history.lock.lock();
+            try {
+                history.prune(cutoff);
+
+                if (history.isEmpty()) {
+                    history.markEvicted();
+                    histories.remove(entry.getKey(), history);
+                }
+            } finally {
+                history.lock.unlock();
+            }
+        }
+    }
+
+    private static <T> T locked(SenderHistory history, Supplier<T> access) {
+        history.lock.lock();
+        try {
+            return access.get();
+        } finally {
+            history.lock.unlock();
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
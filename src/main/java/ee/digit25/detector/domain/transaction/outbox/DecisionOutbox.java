@@ -0,0 +1,348 @@
+package ee.digit25.detector.domain.transaction.outbox;
+
+import ee.digit25.detector.common.CircuitBreakerOpenException;
+import ee.digit25.detector.common.WorkerThreads;
+import ee.digit25.detector.domain.transaction.external.TransactionVerifier;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import retrofit2.HttpException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Outbox between the decide stage and the verify/reject endpoints.
+ *
+ * Decided transaction ids are queued per verdict and sent by one background thread per verdict, so
+ * verify and reject flushes run concurrently. A flush is sent once it reaches the max flush size or
+ * the first queued id has waited the flush interval, which coalesces the ids of several pipeline
+ * batches into one POST while the API is slow. The queues are bounded: when one is full
+ * {@link #submit} blocks, which pushes back through the pipeline to fetching. Ids that are already
+ * queued or being sent are skipped, so re-sending a verdict does not send it twice.
+ *
+ * A failed flush is kept and sent again after the retry delay, the transactions are never fetched or
+ * validated again for it. Ids of failed flushes, and everything still undelivered on shutdown, are
+ * stored in the decision_outbox table and sent first after a restart. A flush the API refuses with a
+ * client error about its payload (400, 404, 409 or 422) is split in halves until the refused ids are
+ * found, only those are dropped. Other client errors, like an expired token, fail the whole flush.
+ *
+ * Ids are acknowledged to the pipeline when they are queued, not when they are stored, so a crash
+ * loses at most the queue capacity plus one max flush size of ids per verdict. They are not lost for
+ * good: the API still lists them as unverified and they are fetched again after the restart.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DecisionOutbox implements SmartLifecycle {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+    // Client errors about the ids sent, anything else (401, 403, 429, ...) is retried like a 5xx
+    private static final Set<Integer> REFUSED_PAYLOAD = Set.of(400, 404, 409, 422);
+
+    private final DecisionOutboxProperties properties;
+    private final DecisionOutboxStore store;
+    private final TransactionVerifier verifier;
+    private final WorkerThreads threads;
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private Lane verify;
+    private Lane reject;
+    private volatile boolean running;
+
+    /**
+     * Queues the ids of decided transactions for sending, blocking while a queue is full. Ids not yet
+     * delivered from an earlier submit are not queued again.
+     */
+    public void submit(List<TransactionModel> verified, List<TransactionModel> rejected) throws InterruptedException {
+        verify.put(verified);
+        reject.put(rejected);
+    }
+
+    @Override
+    public void start() {
+        verify = new Lane("verify", true, verifier::verifyIds);
+        reject = new Lane("reject", false, verifier::rejectIds);
+        running = true;
+        verify.start();
+        reject.start();
+    }
+
+    @Override
+    public void stop() {
+        log.info("Stopping decision outbox, {} verify and {} reject decisions still queued",
+                verify.queue.size(), reject.queue.size());
+        running = false;
+
+        long deadline = System.currentTimeMillis() + properties.getShutdownTimeoutMillis();
+        verify.join(deadline);
+        reject.join(deadline);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before and stops after the processor, which uses the default phase.
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+
+    @Scheduled(fixedRateString = "${detector.processor.stats-interval-millis:10000}")
+    public void logStats() {
+        if (verify == null) {
+            return;
+        }
+
+        long count = flushes.sumThenReset();
+        long transactions = sent.sumThenReset();
+
+        log.info("Outbox stats: queued[verify={} reject={}] flushes={} sent={} avgFlushSize={} failedFlushes={} stored={} dropped={}",
+                verify.queue.size(), reject.queue.size(), count, transactions,
+                count == 0 ? 0 : transactions / count,
+                failedFlushes.sumThenReset(), stored.sumThenReset(), dropped.sumThenReset());
+    }
+
+    private static boolean isRefused(HttpException e) {
+        return REFUSED_PAYLOAD.contains(e.code());
+    }
+
+    /**
+     * Queue and sender thread of one verdict.
+     */
+    private class Lane {
+
+        private final String name;
+        private final boolean legitimate;
+        private final Consumer<List<String>> sender;
+        private final BlockingQueue<String> queue;
+        // Ids queued, pending or being sent, an id is removed once delivered or dropped
+        private final Set<String> undelivered = ConcurrentHashMap.newKeySet();
+
+        // Ids of this lane currently in the decision_outbox table, only used by the sender thread
+        private final Set<String> storedIds = new HashSet<>();
+        private final List<String> pending = new ArrayList<>();
+        private Thread thread;
+
+        Lane(String name, boolean legitimate, Consumer<List<String>> sender) {
+            this.name = name;
+            this.legitimate = legitimate;
+            this.sender = sender;
+            this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        }
+
+        void put(List<TransactionModel> transactions) throws InterruptedException {
+            for (TransactionModel transaction : transactions) {
+                String id = transaction.getId();
+
+                if (!undelivered.add(id)) {
+                    continue;
+                }
+
+                try {
+                    queue.put(id);
+                } catch (InterruptedException e) {
+                    undelivered.remove(id);
+                    throw e;
+                }
+            }
+        }
+
+        void start() {
+            List<String> restored = store.load(legitimate);
+
+            if (!restored.isEmpty()) {
+                log.info("Restored {} undelivered {} decisions", restored.size(), name);
+                storedIds.addAll(restored);
+                undelivered.addAll(restored);
+                pending.addAll(restored);
+            }
+
+            thread = threads.newThread("decision-outbox-" + name, this::run);
+            thread.start();
+        }
+
+        void join(long deadline) {
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (thread.isAlive()) {
+                log.warn("Decision outbox did not drain {} decisions in time, storing the rest", name);
+                thread.interrupt();
+            }
+        }
+
+        private void run() {
+            while (running || !queue.isEmpty() || !pending.isEmpty()) {
+                try {
+                    if (pending.isEmpty()) {
+                        collect();
+                    } else if (pending.size() < properties.getMaxFlushSize()) {
+                        queue.drainTo(pending, properties.getMaxFlushSize() - pending.size());
+                    }
+
+                    if (!pending.isEmpty()) {
+                        flush();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    storeUndelivered();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Waits for the first id, then for more until the flush is full or the flush interval is over.
+         */
+        private void collect() throws InterruptedException {
+            String first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+            if (first == null) {
+                return;
+            }
+
+            pending.add(first);
+            long flushAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMillis());
+
+            while (pending.size() < properties.getMaxFlushSize()) {
+                queue.drainTo(pending, properties.getMaxFlushSize() - pending.size());
+                long remaining = flushAt - System.nanoTime();
+
+                if (pending.size() >= properties.getMaxFlushSize() || remaining <= 0) {
+                    return;
+                }
+
+                String next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+                if (next == null) {
+                    return;
+                }
+
+                pending.add(next);
+            }
+        }
+
+        private void flush() throws InterruptedException {
+            List<String> ids = pending.subList(0, Math.min(pending.size(), properties.getMaxFlushSize()));
+
+            try {
+                deliver(List.copyOf(ids));
+                ids.clear();
+            } catch (RuntimeException e) {
+                failedFlushes.increment();
+                store(ids);
+
+                if (!running) {
+                    log.warn("Failed to {} {} transactions on shutdown: {}", name, ids.size(), e.getMessage());
+                    storeUndelivered();
+                    pending.clear();
+                    return;
+                }
+
+                long delay = e instanceof CircuitBreakerOpenException open
+                        ? Math.max(open.getRetryAfterMillis(), properties.getRetryDelayMillis())
+                        : properties.getRetryDelayMillis();
+
+                log.warn("Failed to {} {} transactions, retrying in {}ms: {}", name, ids.size(), delay, e.getMessage());
+                Thread.sleep(delay);
+            }
+        }
+
+        private void deliver(List<String> ids) {
+            try {
+                sender.accept(ids);
+            } catch (HttpException e) {
+                if (!isRefused(e)) {
+                    throw e;
+                }
+
+                if (ids.size() == 1) {
+                    log.error("Transaction API refused to {} transaction {} with {}, dropping it", name, ids.getFirst(), e.code());
+                    dropped.increment();
+                    delivered(ids);
+                    return;
+                }
+
+                int half = ids.size() / 2;
+                deliver(ids.subList(0, half));
+                deliver(ids.subList(half, ids.size()));
+                return;
+            }
+
+            flushes.increment();
+            sent.add(ids.size());
+            delivered(ids);
+        }
+
+        /**
+         * Removes delivered or dropped ids from the decision_outbox table, they can be submitted again.
+         */
+        private void delivered(List<String> ids) {
+            ids.forEach(undelivered::remove);
+
+            if (storedIds.isEmpty()) {
+                return;
+            }
+
+            List<String> rows = ids.stream().filter(storedIds::contains).toList();
+
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            try {
+                store.delete(rows);
+                rows.forEach(storedIds::remove);
+            } catch (DataAccessException e) {
+                // Left in the table, sent once more after the next restart
+                log.warn("Failed to remove {} delivered {} decisions from the outbox table", rows.size(), name, e);
+            }
+        }
+
+        private void storeUndelivered() {
+            queue.drainTo(pending);
+            store(pending);
+        }
+
+        private void store(List<String> ids) {
+            List<String> rows = ids.stream().filter(id -> !storedIds.contains(id)).toList();
+
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            try {
+                store.save(rows, legitimate);
+                storedIds.addAll(rows);
+                stored.add(rows.size());
+            } catch (DataAccessException e) {
+                log.error("Failed to store {} undelivered {} decisions", rows.size(), name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package ee.digit25.detector.domain.transaction.outbox;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.outbox")
+public class DecisionOutboxProperties {
+
+    /**
+     * Decided transaction ids waiting to be sent, per verdict. Producers block once it is full.
+     * Together with the max flush size this bounds the decisions a crash can lose.
+     */
+    @Min(1)
+    private int queueCapacity = 20000;
+
+    /**
+     * Largest number of ids sent in one verify or reject call.
+     */
+    @Min(1)
+    private int maxFlushSize = 500;
+
+    /**
+     * How long the first queued id waits for more before a flush that is not full is sent.
+     */
+    @Min(0)
+    private long flushIntervalMillis = 10;
+
+    /**
+     * Pause before a failed flush is sent again.
+     */
+    @Min(1)
+    private long retryDelayMillis = 500;
+
+    /**
+     * Maximum time to wait for the queues to drain on shutdown.
+     */
+    @Min(0)
+    private long shutdownTimeoutMillis = 30000;
+}
@@ -0,0 +1,46 @@
+package ee.digit25.detector.domain.transaction.outbox;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Local copy of undelivered decisions in the decision_outbox table.
+ */
+@Component
+@RequiredArgsConstructor
+public class DecisionOutboxStore {
+
+    private static final String INSERT_SQL = "INSERT INTO decision_outbox (transaction_id, legitimate) " +
+            "SELECT unnest(?::text[]), ? ON CONFLICT (transaction_id) DO NOTHING";
+    private static final String DELETE_SQL = "DELETE FROM decision_outbox WHERE transaction_id = ANY(?::text[])";
+    private static final String SELECT_SQL = "SELECT transaction_id FROM decision_outbox WHERE legitimate = ? ORDER BY created_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void save(Collection<String> transactionIds, boolean legitimate) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_SQL);
+            statement.setArray(1, connection.createArrayOf("text", transactionIds.toArray()));
+            statement.setBoolean(2, legitimate);
+            return statement;
+        });
+    }
+
+    public void delete(Collection<String> transactionIds) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(DELETE_SQL);
+            statement.setArray(1, connection.createArrayOf("text", transactionIds.toArray()));
+            return statement;
+        });
+    }
+
+    public List<String> load(boolean legitimate) {
+        return new ArrayList<>(jdbcTemplate.queryForList(SELECT_SQL, String.class, legitimate));
+    }
+}
@@ -0,0 +1,35 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import ee.digit25.detector.domain.transaction.history.TransactionHistoryIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fewer than 10 transactions of the sender in the last 30 seconds.
+ */
+@Component
+@RequiredArgsConstructor
+public class BurstRule implements Rule {
+
+    private static final int WINDOW_SECONDS = 30;
+    private static final int THRESHOLD = 10;
+
+    private final TransactionHistoryIndex historyIndex;
+
+    @Override
+    public String name() {
+        return "burst";
+    }
+
+    @Override
+    public boolean isCheap() {
+        return false;
+    }
+
+    @Override
+    public boolean test(RuleInput input) {
+        String sender = input.getTransaction().getSender();
+
+        return historyIndex.countAfter(sender, input.getValidationTime().minusSeconds(WINDOW_SECONDS)) < THRESHOLD;
+    }
+}
@@ -0,0 +1,27 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import ee.digit25.detector.domain.device.DeviceValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class DeviceRule implements Rule {
+
+    private final DeviceValidator deviceValidator;
+
+    @Override
+    public String name() {
+        return "device";
+    }
+
+    @Override
+    public boolean isCheap() {
+        return true;
+    }
+
+    @Override
+    public boolean test(RuleInput input) {
+        return deviceValidator.isValid(input.getDevice(), input.getContext());
+    }
+}
@@ -0,0 +1,34 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import ee.digit25.detector.domain.transaction.history.TransactionHistoryIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Every transaction of the sender in the last minute was legitimate.
+ */
+@Component
+@RequiredArgsConstructor
+public class HistoryRule implements Rule {
+
+    private static final int WINDOW_MINUTES = 1;
+
+    private final TransactionHistoryIndex historyIndex;
+
+    @Override
+    public String name() {
+        return "history";
+    }
+
+    @Override
+    public boolean isCheap() {
+        return false;
+    }
+
+    @Override
+    public boolean test(RuleInput input) {
+        String sender = input.getTransaction().getSender();
+
+        return historyIndex.allLegitimateAfter(sender, input.getValidationTime().minusMinutes(WINDOW_MINUTES));
+    }
+}
@@ -0,0 +1,35 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import ee.digit25.detector.domain.transaction.history.TransactionHistoryIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * The sender used fewer than 2 different devices in the last 10 seconds.
+ */
+@Component
+@RequiredArgsConstructor
+public class MultiDeviceRule implements Rule {
+
+    private static final int WINDOW_SECONDS = 10;
+    private static final int THRESHOLD = 2;
+
+    private final TransactionHistoryIndex historyIndex;
+
+    @Override
+    public String name() {
+        return "multiDevice";
+    }
+
+    @Override
+    public boolean isCheap() {
+        return false;
+    }
+
+    @Override
+    public boolean test(RuleInput input) {
+        String sender = input.getTransaction().getSender();
+
+        return historyIndex.distinctDevicesAfter(sender, input.getValidationTime().minusSeconds(WINDOW_SECONDS)) < THRESHOLD;
+    }
+}
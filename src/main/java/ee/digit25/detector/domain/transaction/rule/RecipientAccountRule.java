@@ -0,0 +1,27 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import ee.digit25.detector.domain.account.AccountValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class RecipientAccountRule implements Rule {
+
+    private final AccountValidator accountValidator;
+
+    @Override
+    public String name() {
+        return "recipientAccount";
+    }
+
+    @Override
+    public boolean isCheap() {
+        return true;
+    }
+
+    @Override
+    public boolean test(RuleInput input) {
+        return accountValidator.isValidRecipientAccount(input.getRecipientAccount(), input.getRecipient(), input.getContext());
+    }
+}
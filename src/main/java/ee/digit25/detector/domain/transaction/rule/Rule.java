@@ -0,0 +1,25 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+/**
+ * Single check a transaction has to pass to be legitimate.
+ *
+ * Rules are Spring beans, the {@link RuleEngine} picks up every registered rule and decides the order
+ * they run in.
+ */
+public interface Rule {
+
+    /**
+     * Short stable name used in stats.
+     */
+    String name();
+
+    /**
+     * Cheap rules only read the compiled validation context. They always run before the others.
+     */
+    boolean isCheap();
+
+    /**
+     * @return whether the transaction passes the rule
+     */
+    boolean test(RuleInput input);
+}
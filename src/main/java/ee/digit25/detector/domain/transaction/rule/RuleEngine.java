@@ -0,0 +1,145 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Runs the registered {@link Rule}s until the first one fails.
+ *
+ * Cheap rules run before the others. Within each group rules are ordered by their measured cost per
+ * rejection (average time divided by rejection rate), so rules that are fast and reject often run
+ * first. Cost and rejection rate are smoothed and the order is recomputed every stats interval.
+ */
+@Slf4j
+@Component
+public class RuleEngine {
+
+    /**
+     * Result of {@link #evaluate} when every rule passed. Rules are numbered from 1 in registration order.
+     */
+    public static final int PASSED = 0;
+
+    private static final double SMOOTHING = 0.3;
+
+    private final List<RegisteredRule> rules;
+    private volatile List<RegisteredRule> order;
+
+    public RuleEngine(List<Rule> rules) {
+        this.rules = IntStream.range(0, rules.size())
+                .mapToObj(index -> new RegisteredRule(rules.get(index), index + 1))
+                .toList();
+        this.order = sorted(this.rules);
+
+        log.info("Registered rules: {}", describeOrder());
+    }
+
+    /**
+     * @return {@link #PASSED} or the number of the first rule the transaction failed
+     */
+    public int evaluate(RuleInput input) {
+        for (RegisteredRule rule : order) {
+            long start = System.nanoTime();
+            boolean passed = rule.rule.test(input);
+            rule.record(System.nanoTime() - start, passed);
+
+            if (!passed) {
+                return rule.number;
+            }
+        }
+
+        return PASSED;
+    }
+
+    /**
+     * Rule names in registration order, the name of rule number n is at index n - 1.
+     */
+    public List<String> ruleNames() {
+        return rules.stream().map(rule -> rule.rule.name()).toList();
+    }
+
+    @Scheduled(fixedRateString = "${detector.processor.stats-interval-millis:10000}")
+    public void reorder() {
+        StringJoiner stats = new StringJoiner(" ");
+
+        for (RegisteredRule rule : rules) {
+            stats.add(rule.updateAndReset());
+        }
+
+        order = sorted(rules);
+
+        log.info("Rule stats: {} order={}", stats, describeOrder());
+    }
+
+    private String describeOrder() {
+        StringJoiner names = new StringJoiner(",");
+        order.forEach(rule -> names.add(rule.rule.name()));
+
+        return names.toString();
+    }
+
+    private static List<RegisteredRule> sorted(List<RegisteredRule> rules) {
+        List<RegisteredRule> sorted = new ArrayList<>(rules);
+        sorted.sort(Comparator.comparing((RegisteredRule rule) -> !rule.rule.isCheap())
+                .thenComparingDouble(RegisteredRule::costPerRejection));
+
+        return List.copyOf(sorted);
+    }
+
+    private static class RegisteredRule {
+
+        private final Rule rule;
+        private final int number;
+
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        // Only touched by reorder(), read when sorting
+        private double averageNanos;
+        private double rejectionRate = 0.5;
+
+        RegisteredRule(Rule rule, int number) {
+            this.rule = rule;
+            this.number = number;
+        }
+
+        void record(long elapsedNanos, boolean passed) {
+            invocations.increment();
+            nanos.add(elapsedNanos);
+
+            if (!passed) {
+                rejections.increment();
+            }
+        }
+
+        /**
+         * Folds the counters since the last call into the smoothed cost and rejection rate.
+         */
+        String updateAndReset() {
+            long count = invocations.sumThenReset();
+            long rejected = rejections.sumThenReset();
+            long spent = nanos.sumThenReset();
+
+            if (count > 0) {
+                averageNanos += SMOOTHING * ((double) spent / count - averageNanos);
+                // Laplace smoothing keeps a rule that never rejects from getting an infinite cost
+                rejectionRate += SMOOTHING * ((rejected + 1.0) / (count + 2.0) - rejectionRate);
+            }
+
+            return String.format("%s[n=%d, rejected=%d, avg=%dns]",
+                    rule.name(), count, rejected, count == 0 ? 0 : spent / count);
+        }
+
+        double costPerRejection() {
+            return averageNanos / rejectionRate;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import ee.digit25.detector.process.ValidationContext;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transaction under validation with the context indices of its parties resolved once for all rules.
+ */
+@Getter
+@RequiredArgsConstructor
+public class RuleInput {
+
+    private final TransactionModel transaction;
+    private final ValidationContext context;
+    private final int sender;
+    private final int recipient;
+    private final int senderAccount;
+    private final int recipientAccount;
+    private final int device;
+    private final LocalDateTime validationTime;
+}
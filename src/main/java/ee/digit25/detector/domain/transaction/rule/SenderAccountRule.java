@@ -0,0 +1,28 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import ee.digit25.detector.domain.account.AccountValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class SenderAccountRule implements Rule {
+
+    private final AccountValidator accountValidator;
+
+    @Override
+    public String name() {
+        return "senderAccount";
+    }
+
+    @Override
+    public boolean isCheap() {
+        return true;
+    }
+
+    @Override
+    public boolean test(RuleInput input) {
+        return accountValidator.isValidSenderAccount(
+                input.getSenderAccount(), input.getTransaction().getAmount(), input.getSender(), input.getContext());
+    }
+}
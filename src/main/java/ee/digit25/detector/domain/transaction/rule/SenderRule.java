@@ -0,0 +1,27 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import ee.digit25.detector.domain.person.PersonValidator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class SenderRule implements Rule {
+
+    private final PersonValidator personValidator;
+
+    @Override
+    public String name() {
+        return "sender";
+    }
+
+    @Override
+    public boolean isCheap() {
+        return true;
+    }
+
+    @Override
+    public boolean test(RuleInput input) {
+        return personValidator.isValid(input.getSender(), input.getContext());
+    }
+}
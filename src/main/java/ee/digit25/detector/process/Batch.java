@@ -0,0 +1,69 @@
+package ee.digit25.detector.process;
+
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Unit of work travelling through the {@link Processor} pipeline.
+ *
+ * Every stage only touches the batch while it owns it, so the fields need no synchronization.
+ */
+@Getter
+public class Batch {
+
+    /**
+     * Earliest deadline first, used by the queues in front of enrich, validate and decide.
+     */
+    public static final Comparator<Batch> BY_EARLIEST_DEADLINE = Comparator.comparing(Batch::getEarliestDeadline);
+
+    private final long sequence;
+    private final List<TransactionModel> transactions;
+    private final LocalDateTime earliestDeadline;
+    private final long fetchedAtNanos;
+    private final List<TransactionModel> verified = new ArrayList<>();
+    private final List<TransactionModel> rejected = new ArrayList<>();
+    /**
+     * Rejection reason of each rejected transaction, in the same order.
+     */
+    private final List<Byte> rejectionReasons = new ArrayList<>();
+
+    @Setter
+    private ValidationContext context;
+
+    public Batch(long sequence, List<TransactionModel> transactions, long fetchedAtNanos) {
+        this.sequence = sequence;
+        this.transactions = transactions;
+        this.fetchedAtNanos = fetchedAtNanos;
+        this.earliestDeadline = transactions.stream()
+                .map(TransactionModel::getDeadline)
+                .filter(Objects::nonNull)
+                .min(Comparator.naturalOrder())
+                .orElse(LocalDateTime.MAX);
+    }
+
+    /**
+     * Creates a batch of a subset of these transactions, sharing the sequence and validation context.
+     */
+    public Batch derive(List<TransactionModel> subset) {
+        Batch derived = new Batch(sequence, subset, fetchedAtNanos);
+        derived.setContext(context);
+
+        return derived;
+    }
+
+    public void reject(TransactionModel transaction, int reason) {
+        rejected.add(transaction);
+        rejectionReasons.add((byte) reason);
+    }
+
+    public int size() {
+        return transactions.size();
+    }
+}
@@ -0,0 +1,152 @@
+package ee.digit25.detector.process;
+
+import com.google.common.collect.Lists;
+import ee.digit25.detector.common.ExecutionProperties;
+import ee.digit25.detector.common.WorkerThreads;
+import ee.digit25.detector.domain.account.external.AccountRequester;
+import ee.digit25.detector.domain.account.external.api.AccountModel;
+import ee.digit25.detector.domain.device.external.DeviceRequester;
+import ee.digit25.detector.domain.device.external.api.DeviceModel;
+import ee.digit25.detector.domain.person.external.PersonRequester;
+import ee.digit25.detector.domain.person.external.api.PersonModel;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Builds the {@link ValidationContext} of a batch.
+ *
+ * Persons, accounts and devices are looked up concurrently, each key set split into chunks that are
+ * requested in parallel. Chunk results are merged into the context as they arrive. Outbound calls
+ * stay within the shared budget of the API concurrency limiter, which queues whatever exceeds it.
+ *
+ * With asynchronous HTTP the chunks are requested without blocking any thread, otherwise each chunk
+ * occupies a thread of the enrichment executor until its response arrives.
+ */
+@Slf4j
+@Component
+public class BatchEnricher {
+
+    private final ProcessorProperties properties;
+    private final PersonRequester personRequester;
+    private final AccountRequester accountRequester;
+    private final DeviceRequester deviceRequester;
+    private final ExecutorService executor;
+    private final boolean asyncHttp;
+
+    private final Timing personTiming = new Timing();
+    private final Timing accountTiming = new Timing();
+    private final Timing deviceTiming = new Timing();
+
+    public BatchEnricher(
+            ProcessorProperties properties,
+            PersonRequester personRequester,
+            AccountRequester accountRequester,
+            DeviceRequester deviceRequester,
+            WorkerThreads threads,
+            ExecutionProperties executionProperties
+    ) {
+        this.properties = properties;
+        this.personRequester = personRequester;
+        this.accountRequester = accountRequester;
+        this.deviceRequester = deviceRequester;
+        this.executor = threads.newExecutor("enrich", properties.getEnrichParallelism());
+        this.asyncHttp = executionProperties.isAsyncHttp();
+    }
+
+    public ValidationContext enrich(List<TransactionModel> transactions) {
+        Set<String> personCodes = new HashSet<>();
+        Set<String> accountNumbers = new HashSet<>();
+        Set<String> deviceMacs = new HashSet<>();
+
+        for (TransactionModel transaction : transactions) {
+            personCodes.add(transaction.getSender());
+            personCodes.add(transaction.getRecipient());
+            accountNumbers.add(transaction.getSenderAccount());
+            accountNumbers.add(transaction.getRecipientAccount());
+            deviceMacs.add(transaction.getDeviceMac());
+        }
+
+        // Missing references can not be looked up, the transactions are rejected as unknown parties
+        personCodes.remove(null);
+        accountNumbers.remove(null);
+        deviceMacs.remove(null);
+
+        Map<String, PersonModel> persons = new ConcurrentHashMap<>(personCodes.size());
+        Map<String, AccountModel> accounts = new ConcurrentHashMap<>(accountNumbers.size());
+        Map<String, DeviceModel> devices = new ConcurrentHashMap<>(deviceMacs.size());
+
+        // Unknown keys are left out and rejected by validation
+        CompletableFuture.allOf(
+                lookup(personCodes, personRequester::get, personRequester::getAsync, persons, personTiming),
+                lookup(accountNumbers, accountRequester::get, accountRequester::getAsync, accounts, accountTiming),
+                lookup(deviceMacs, deviceRequester::get, deviceRequester::getAsync, devices, deviceTiming)
+        ).join();
+
+        return ValidationContext.compile(persons, accounts, devices);
+    }
+
+    /**
+     * Average time per batch until all chunks of each entity type were merged.
+     */
+    String describeAndReset() {
+        return "enrich[persons=" + personTiming.describeAndReset()
+                + ", accounts=" + accountTiming.describeAndReset()
+                + ", devices=" + deviceTiming.describeAndReset() + "]";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<Void> lookup(
+            Set<String> keys,
+            Function<Collection<String>, Map<String, T>> requester,
+            Function<Collection<String>, CompletableFuture<Map<String, T>>> asyncRequester,
+            Map<String, T> into,
+            Timing timing
+    ) {
+        long start = System.nanoTime();
+        List<List<String>> chunks = Lists.partition(new ArrayList<>(keys), properties.getEnrichChunkSize());
+        CompletableFuture<?>[] lookups = new CompletableFuture<?>[chunks.size()];
+
+        for (int i = 0; i < lookups.length; i++) {
+            List<String> chunk = chunks.get(i);
+            CompletableFuture<Map<String, T>> lookup = asyncHttp
+                    ? asyncRequester.apply(chunk)
+                    : CompletableFuture.supplyAsync(() -> requester.apply(chunk), executor);
+
+            lookups[i] = lookup.thenAccept(into::putAll);
+        }
+
+        return CompletableFuture.allOf(lookups)
+                .whenComplete((result, e) -> timing.record(System.nanoTime() - start));
+    }
+
+    private static class Timing {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void record(long elapsedNanos) {
+            count.increment();
+            nanos.add(elapsedNanos);
+        }
+
+        String describeAndReset() {
+            long batches = count.sumThenReset();
+            long total = nanos.sumThenReset();
+
+            return String.format("%.1fms", batches == 0 ? 0 : total / 1_000_000.0 / batches);
+        }
+    }
+}
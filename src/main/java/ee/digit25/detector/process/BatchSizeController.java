@@ -0,0 +1,123 @@
+package ee.digit25.detector.process;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Picks the amount of transactions requested by each getUnverified call.
+ *
+ * Feedback comes from both ends of the pipeline. The fetch stage reports how full the last fetch was
+ * and how many batches are waiting downstream, the decide stage reports end-to-end latency per
+ * transaction and deadlines missed while processing. Transactions already past their deadline when
+ * fetched are not counted, no batch size would have saved them. A full fetch with idle downstream
+ * stages means there is a backlog and the size grows multiplicatively; rising latency per
+ * transaction, missed deadlines or a nearly empty fetch shrink it. The result always stays within
+ * the configured bounds.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchSizeController {
+
+    private static final double GROWTH = 1.5;
+    private static final double SHRINK = 0.75;
+    private static final double LATENCY_TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.3;
+
+    private final ProcessorProperties properties;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private int size = -1;
+    private double latencyPerTransaction;
+    private double bestLatencyPerTransaction = Double.MAX_VALUE;
+    private boolean congested;
+
+    public int nextBatchSize() {
+        lock.lock();
+        try {
+            if (size < 0) {
+                size = clamp(properties.getBatchSize());
+            }
+
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param requested amount asked for
+     * @param fetched   amount the API returned
+     * @param queued    batches waiting in front of the enrich stage
+     */
+    public void onFetched(int requested, int fetched, int queued) {
+        if (!properties.isAdaptiveBatchSize()) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            int previous = nextBatchSize();
+
+            if (fetched < requested / 2) {
+                // Backlog is drained, do not ask for much more than is actually there
+                size = clamp(Math.min(size, Math.max(fetched * 2, properties.getMinBatchSize())));
+            } else if (fetched == requested && queued == 0 && !congested) {
+                size = clamp((int) Math.ceil(size * GROWTH));
+            }
+
+            congested = false;
+            logChange(previous, "fetched {} of {}, {} queued", fetched, requested, queued);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param transactions  decided transactions
+     * @param latencyNanos  time from the start of their fetch until the decision was queued for sending
+     * @param missed        transactions decided after a deadline that had not passed yet when they
+     *                      were fetched
+     */
+    public void onDecided(int transactions, long latencyNanos, int missed) {
+        if (!properties.isAdaptiveBatchSize() || transactions == 0) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            double sample = (double) latencyNanos / transactions;
+            latencyPerTransaction = latencyPerTransaction == 0
+                    ? sample
+                    : latencyPerTransaction + SMOOTHING * (sample - latencyPerTransaction);
+            bestLatencyPerTransaction = Math.min(bestLatencyPerTransaction, latencyPerTransaction);
+
+            int previous = nextBatchSize();
+
+            if (missed > 0 || latencyPerTransaction > bestLatencyPerTransaction * LATENCY_TOLERANCE) {
+                congested = true;
+                size = clamp((int) (size * SHRINK));
+
+                // Forget the old optimum slowly, conditions upstream change over time
+                bestLatencyPerTransaction *= 1.05;
+            }
+
+            logChange(previous, "{} ns per transaction, {} missed deadlines", (long) latencyPerTransaction, missed);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int clamp(int value) {
+        return Math.max(properties.getMinBatchSize(), Math.min(properties.getMaxBatchSize(), value));
+    }
+
+    private void logChange(int previous, String reason, Object... arguments) {
+        if (previous != size && log.isDebugEnabled()) {
+            log.debug("Batch size " + previous + " -> " + size + ": " + reason, arguments);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package ee.digit25.detector.process;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Blocking priority queue with a fixed capacity.
+ *
+ * {@link java.util.concurrent.PriorityBlockingQueue} never blocks producers, which would break the
+ * backpressure between pipeline stages, so this one blocks {@link #put} while full.
+ */
+class BoundedPriorityBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    private final int capacity;
+    private final PriorityQueue<E> queue;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    BoundedPriorityBlockingQueue(int capacity, Comparator<? super E> comparator) {
+        this.capacity = capacity;
+        this.queue = new PriorityQueue<>(capacity, comparator);
+    }
+
+    @Override
+    public boolean offer(E element) {
+        lock.lock();
+        try {
+            if (queue.size() >= capacity) {
+                return false;
+            }
+
+            enqueue(element);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E element) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= capacity) {
+                notFull.await();
+            }
+
+            enqueue(element);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+
+        lock.lockInterruptibly();
+        try {
+            while (queue.size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+
+            enqueue(element);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                notEmpty.await();
+            }
+
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+
+        lock.lockInterruptibly();
+        try {
+            while (queue.isEmpty()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E poll() {
+        lock.lock();
+        try {
+            return queue.isEmpty() ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public E peek() {
+        lock.lock();
+        try {
+            return queue.peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        lock.lock();
+        try {
+            boolean removed = queue.remove(element);
+
+            if (removed) {
+                notFull.signal();
+            }
+
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> target, int maxElements) {
+        lock.lock();
+        try {
+            int drained = 0;
+
+            while (drained < maxElements && !queue.isEmpty()) {
+                target.add(queue.poll());
+                drained++;
+            }
+
+            if (drained > 0) {
+                notFull.signalAll();
+            }
+
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Iterates over a snapshot, in no particular order.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        lock.lock();
+        try {
+            return new ArrayList<>(queue).iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enqueue(E element) {
+        queue.offer(element);
+        notEmpty.signal();
+    }
+
+    private E dequeue() {
+        E element = queue.poll();
+        notFull.signal();
+        return element;
+    }
+}
@@ -0,0 +1,145 @@
+package ee.digit25.detector.process;
+
+import ee.digit25.detector.common.WorkerThreads;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stage of the {@link Processor} pipeline with one or more worker threads, virtual or platform as
+ * configured.
+ *
+ * Each worker takes batches from the input queue, runs the handler and puts the result on the output
+ * queue. A stage without an input queue is a source whose workers call the handler in a loop. Both
+ * queues are bounded, so a slow stage blocks the ones in front of it instead of letting work pile up.
+ */
+@Slf4j
+class PipelineStage {
+
+    private static final long POLL_TIMEOUT_MILLIS = 100;
+
+    @FunctionalInterface
+    interface Handler {
+
+        /**
+         * @return batch to hand over to the next stage, or null if there is nothing to forward
+         */
+        Batch handle(Batch batch) throws InterruptedException;
+    }
+
+    @Getter
+    private final String name;
+    private final BlockingQueue<Batch> input;
+    private final BlockingQueue<Batch> output;
+    private final Handler handler;
+    private final List<Thread> workers;
+
+    private final LongAdder processed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+    private volatile boolean stopping;
+
+    PipelineStage(
+            String name,
+            BlockingQueue<Batch> input,
+            BlockingQueue<Batch> output,
+            Handler handler,
+            int workerCount,
+            WorkerThreads threads
+    ) {
+        this.name = name;
+        this.input = input;
+        this.output = output;
+        this.handler = handler;
+        this.workers = new ArrayList<>(workerCount);
+
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(threads.newThread(workerCount == 1 ? "pipeline-" + name : "pipeline-" + name + "-" + i, this::run));
+        }
+    }
+
+    void start() {
+        workers.forEach(Thread::start);
+    }
+
+    /**
+     * Lets the stage finish everything already in its input queue and waits for the workers to exit.
+     */
+    void stop(long timeoutMillis) throws InterruptedException {
+        stopping = true;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+
+            if (worker.isAlive()) {
+                log.warn("Pipeline worker {} did not drain within {} ms, interrupting", worker.getName(), timeoutMillis);
+                worker.interrupt();
+            }
+        }
+    }
+
+    int queued() {
+        return input == null ? 0 : input.size();
+    }
+
+    /**
+     * Returns "name[n=.., avg=..ms, max=..ms, failed=..]" for the period since the previous call.
+     */
+    String describeAndReset() {
+        long count = processed.sumThenReset();
+        long nanos = busyNanos.sumThenReset();
+        long max = maxNanos.getThenReset();
+        double avgMillis = count == 0 ? 0 : nanos / 1_000_000.0 / count;
+
+        return String.format("%s[n=%d, avg=%.1fms, max=%.1fms, failed=%d]",
+                name, count, avgMillis, max / 1_000_000.0, failed.sumThenReset());
+    }
+
+    private void run() {
+        while (!stopping || queued() > 0) {
+            Batch batch = null;
+
+            try {
+                if (input != null) {
+                    batch = input.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+
+                    if (batch == null) {
+                        continue;
+                    }
+                }
+
+                long start = System.nanoTime();
+                Batch result = handler.handle(batch);
+
+                if (batch != null || result != null) {
+                    record(System.nanoTime() - start);
+                }
+
+                if (result != null && output != null) {
+                    output.put(result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failed.increment();
+                log.error("Pipeline stage {} failed for batch {}", name, batch == null ? "-" : batch.getSequence(), e);
+            }
+        }
+    }
+
+    private void record(long nanos) {
+        processed.increment();
+        busyNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+}
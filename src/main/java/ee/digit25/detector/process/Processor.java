@@ -1,135 +1,405 @@
 package ee.digit25.detector.process;
 
-import ee.digit25.detector.domain.account.external.AccountRequester;
-import ee.digit25.detector.domain.account.external.api.AccountModel;
-import ee.digit25.detector.domain.device.external.DeviceRequester;
-import ee.digit25.detector.domain.device.external.api.DeviceModel;
-import ee.digit25.detector.domain.person.external.PersonRequester;
-import ee.digit25.detector.domain.person.external.api.PersonModel;
+import com.google.common.util.concurrent.Striped;
+import ee.digit25.detector.common.CircuitBreakerOpenException;
+import ee.digit25.detector.common.WorkerThreads;
 import ee.digit25.detector.domain.transaction.TransactionValidator;
-import ee.digit25.detector.domain.transaction.common.Transaction;
-import ee.digit25.detector.domain.transaction.common.TransactionMapper;
+import ee.digit25.detector.domain.transaction.audit.DecisionAuditTrail;
+import ee.digit25.detector.domain.transaction.common.TransactionDecision;
 import ee.digit25.detector.domain.transaction.external.TransactionRequester;
-import ee.digit25.detector.domain.transaction.external.TransactionVerifier;
 import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
-import ee.digit25.detector.domain.transaction.feature.PersistTransactionFeature;
+import ee.digit25.detector.domain.transaction.feature.TransactionWriteBehind;
+import ee.digit25.detector.domain.transaction.history.DecidedTransactionMemo;
+import ee.digit25.detector.domain.transaction.history.TransactionHistoryIndex;
+import ee.digit25.detector.domain.transaction.outbox.DecisionOutbox;
+import ee.digit25.detector.domain.transaction.rule.RuleEngine;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
 
+/**
+ * Processes unverified transactions as a staged pipeline:
+ * fetch -> enrich -> validate -> decide -> persist.
+ *
+ * Each stage runs on its own thread and hands batches over through bounded queues, so batch N+1
+ * is fetched and enriched while batch N is being decided and persisted. The enrich stage fans its
+ * lookups out through the {@link BatchEnricher}; all outbound calls share the budget of the API
+ * concurrency limiter, below the 50 concurrent requests allowed per token.
+ *
+ * History rules are answered from the {@link TransactionHistoryIndex}, which is updated as each
+ * decision is made, so validation never waits for earlier batches to reach the database. The decide
+ * stage only hands verdicts to the {@link DecisionOutbox}, which coalesces them into verify and reject
+ * calls in the background, and the persist stage only hands decisions to the
+ * {@link TransactionWriteBehind} queue.
+ *
+ * Work between fetch and decide is scheduled earliest deadline first: the enrich, validate and
+ * decide queues are ordered by the earliest deadline of each batch, and validation handles
+ * transactions in deadline order. Transactions due within the urgent window are handed to the
+ * decide stage as soon as they are validated instead of waiting for the rest of their batch.
+ *
+ * With streaming fetches the response of getUnverified is parsed as it arrives and handed to the
+ * enrich stage in micro-batches, so the first decisions are made before the whole batch is downloaded.
+ *
+ * Each stage can run several workers. Fetch workers claim the transactions they receive through
+ * {@link TransactionClaims}, so a transaction returned to several of them is decided once. Validate
+ * workers hold a per-sender striped lock from the rule checks until the decision is recorded in the
+ * history index, so two batches with the same sender cannot both pass on the same history.
+ *
+ * Transactions returned again after their decision failed to reach the API are recognised by the
+ * {@link DecidedTransactionMemo} while claiming and only have their earlier verdict re-sent, the
+ * outbox skips the ones it still has queued.
+ *
+ * Individual decisions go to the binary {@link DecisionAuditTrail}, the text log gets one summary
+ * line per decided batch.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class Processor {
+public class Processor implements SmartLifecycle {
 
-    private final int TRANSACTION_BATCH_SIZE = 100;
+    private static final int SENDER_LOCK_STRIPES = 1024;
+
+    private static final Comparator<TransactionModel> BY_DEADLINE =
+            Comparator.comparing(TransactionModel::getDeadline, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final ProcessorProperties properties;
     private final TransactionRequester requester;
-    private final PersonRequester personRequester;
-    private final AccountRequester accountRequester;
-    private final DeviceRequester deviceRequester;
+    private final BatchEnricher enricher;
     private final TransactionValidator validator;
-    private final TransactionVerifier verifier;
-    private final PersistTransactionFeature persistTransactionFeature;
-    private final TransactionMapper transactionMapper;
+    private final DecisionOutbox outbox;
+    private final TransactionWriteBehind writeBehind;
+    private final TransactionHistoryIndex historyIndex;
+    private final BatchSizeController batchSizeController;
+    private final WorkerThreads threads;
+    private final TransactionClaims claims;
+    private final DecisionAuditTrail auditTrail;
+    private final DecidedTransactionMemo memo;
+
+    private final Striped<Lock> senderLocks = Striped.lock(SENDER_LOCK_STRIPES);
 
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder decided = new LongAdder();
+    private final LongAdder missedDeadlines = new LongAdder();
+    private final LongAdder arrivedLate = new LongAdder();
+    private final LongAdder urgentFlushes = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder microBatches = new LongAdder();
+    private final LongAdder redelivered = new LongAdder();
+    private List<PipelineStage> stages = List.of();
+    private BlockingQueue<Batch> enrichQueue;
+    private BlockingQueue<Batch> decideQueue;
+    private volatile boolean running;
 
-    @Scheduled(fixedDelay = 1) //Runs every 1000 ms after the last run
-    public void process() {
-        log.info("Starting to process a batch of transactions of size {}", TRANSACTION_BATCH_SIZE);
+    @Override
+    public void start() {
+        enrichQueue = new BoundedPriorityBlockingQueue<>(properties.getQueueCapacity(), Batch.BY_EARLIEST_DEADLINE);
+        BlockingQueue<Batch> validateQueue = new BoundedPriorityBlockingQueue<>(properties.getQueueCapacity(), Batch.BY_EARLIEST_DEADLINE);
+        decideQueue = new BoundedPriorityBlockingQueue<>(properties.getQueueCapacity(), Batch.BY_EARLIEST_DEADLINE);
+        BlockingQueue<Batch> persistQueue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        int workers = properties.getWorkers();
+
+        stages = List.of(
+                new PipelineStage("fetch", null, enrichQueue, batch -> fetch(), workers, threads),
+                new PipelineStage("enrich", enrichQueue, validateQueue, this::enrich, workers, threads),
+                new PipelineStage("validate", validateQueue, decideQueue, this::validate, workers, threads),
+                new PipelineStage("decide", decideQueue, persistQueue, this::decide, workers, threads),
+                new PipelineStage("persist", persistQueue, null, this::persist, 1, threads)
+        );
 
-        List<TransactionModel> transactions = requester.getUnverified(TRANSACTION_BATCH_SIZE);
+        log.info("Starting processing pipeline with batch size {} ({}), queue capacity {} and {} workers per stage on {} threads",
+                properties.getBatchSize(), properties.isAdaptiveBatchSize() ? "adaptive" : "fixed", properties.getQueueCapacity(),
+                workers, threads.isVirtual() ? "virtual" : "platform");
 
-        if (transactions.isEmpty()) {
-            log.info("No transactions to process");
+        stages.forEach(PipelineStage::start);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        log.info("Stopping processing pipeline, draining queued batches");
+
+        // Stages are stopped front to back so every stage sees the last batches of the one before it
+        try {
+            for (PipelineStage stage : stages) {
+                stage.stop(properties.getShutdownTimeoutMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return properties.isEnabled();
+    }
+
+    @Scheduled(fixedRateString = "${detector.processor.stats-interval-millis:10000}")
+    public void logStats() {
+        if (!running) {
             return;
         }
 
-        // Pre-fetch all data in batch for the entire batch of transactions
-        ValidationContext context = prefetchValidationData(transactions);
+        StringJoiner stats = new StringJoiner(" ");
+        for (PipelineStage stage : stages) {
+            stats.add(stage.describeAndReset() + " queued=" + stage.queued());
+        }
+        stats.add(enricher.describeAndReset());
+
+        log.info("Pipeline stats: {} decided={} missedDeadlines={} arrivedLate={} urgentFlushes={} duplicates={} redelivered={} microBatches={} inFlight={} batchSize={}",
+                stats, decided.sumThenReset(), missedDeadlines.sumThenReset(), arrivedLate.sumThenReset(), urgentFlushes.sumThenReset(),
+                duplicates.sumThenReset(), redelivered.sumThenReset(), microBatches.sumThenReset(), claims.inFlight(), batchSizeController.nextBatchSize());
+    }
+
+    private Batch fetch() throws InterruptedException {
+        try {
+            return fetchBatch();
+        } catch (CircuitBreakerOpenException e) {
+            // The API is failing, wait for the breaker to let a trial call through instead of spinning
+            log.debug("Not fetching: {}", e.getMessage());
+            Thread.sleep(e.getRetryAfterMillis());
+            return null;
+        }
+    }
 
-        // Collections for batch API calls and database persistence
-        List<TransactionModel> verifiedTransactions = new ArrayList<>();
-        List<TransactionModel> rejectedTransactions = new ArrayList<>();
-        List<Transaction> transactionsToPersist = new ArrayList<>();
+    private Batch fetchBatch() throws InterruptedException {
+        int batchSize = batchSizeController.nextBatchSize();
+        log.debug("Starting to process a batch of transactions of size {}", batchSize);
 
-        // Process all transactions sequentially
-        for (TransactionModel transaction : transactions) {
-            process(transaction, context, verifiedTransactions, rejectedTransactions, transactionsToPersist);
+        if (properties.isStreamFetch()) {
+            return fetchStreaming(batchSize);
         }
 
-        // Batch verify/reject API calls
-        if (!verifiedTransactions.isEmpty()) {
-            verifier.verify(verifiedTransactions);
+        long fetchedAt = System.nanoTime();
+        List<TransactionModel> fetched = requester.getUnverified(batchSize);
+        batchSizeController.onFetched(batchSize, fetched.size(), enrichQueue.size());
+
+        Batch batch = claim(fetched, fetchedAt);
+
+        if (batch == null) {
+            log.debug("No transactions to process");
+            Thread.sleep(properties.getIdleDelayMillis());
         }
 
-        if (!rejectedTransactions.isEmpty()) {
-            verifier.reject(rejectedTransactions);
+        return batch;
+    }
+
+    /**
+     * Micro-batches are queued for enrichment while the rest of the response is still downloading,
+     * the last one is returned like a regular batch.
+     *
+     * The response holds a connection and a critical concurrency limiter permit until it is closed, so
+     * nothing waits while it is read: micro-batches that do not fit into the enrich queue and earlier
+     * verdicts to re-send are kept and handed off after the response is closed. Otherwise fetch workers
+     * blocked on a full queue could hold every permit the enrich lookups need to drain it.
+     */
+    private Batch fetchStreaming(int batchSize) throws InterruptedException {
+        long fetchedAt = System.nanoTime();
+        int[] received = {0};
+        int[] queued = {0};
+        List<Batch> deferred = new ArrayList<>();
+        List<TransactionModel> resendVerified = new ArrayList<>();
+        List<TransactionModel> resendRejected = new ArrayList<>();
+
+        List<TransactionModel> last = requester.streamUnverified(batchSize, properties.getStreamChunkSize(), chunk -> {
+            received[0] += chunk.size();
+            Batch batch = claim(chunk, fetchedAt, resendVerified, resendRejected);
+
+            if (batch == null) {
+                return;
+            }
+
+            if (deferred.isEmpty() && enrichQueue.offer(batch)) {
+                queued[0]++;
+            } else {
+                deferred.add(batch);
+            }
+        });
+
+        for (Batch batch : deferred) {
+            enrichQueue.put(batch);
+            queued[0]++;
+        }
+        resend(resendVerified, resendRejected);
+
+        received[0] += last.size();
+        batchSizeController.onFetched(batchSize, received[0], enrichQueue.size());
+
+        Batch batch = claim(last, fetchedAt);
+        microBatches.add(queued[0] + (batch == null ? 0 : 1));
+
+        if (received[0] == 0) {
+            log.debug("No transactions to process");
+            Thread.sleep(properties.getIdleDelayMillis());
         }
 
-        // Batch database persist
-        if (!transactionsToPersist.isEmpty()) {
-            persistTransactionFeature.saveAll(transactionsToPersist);
+        return batch;
+    }
+
+    /**
+     * @return batch of the undecided transactions no other worker received first, null if there are none
+     */
+    private Batch claim(List<TransactionModel> fetched, long fetchedAt) throws InterruptedException {
+        List<TransactionModel> resendVerified = new ArrayList<>();
+        List<TransactionModel> resendRejected = new ArrayList<>();
+
+        Batch batch = claim(fetched, fetchedAt, resendVerified, resendRejected);
+        resend(resendVerified, resendRejected);
+
+        return batch;
+    }
+
+    /**
+     * Same as {@link #claim(List, long)} without blocking, transactions decided before are added to
+     * the resend lists instead of being re-sent.
+     */
+    private Batch claim(List<TransactionModel> fetched, long fetchedAt,
+                        List<TransactionModel> resendVerified, List<TransactionModel> resendRejected) {
+        TransactionClaims.Claim claim = claims.claim(fetched);
+        duplicates.add(fetched.size() - claim.size());
+        resendVerified.addAll(claim.verified());
+        resendRejected.addAll(claim.rejected());
+
+        List<TransactionModel> transactions = claim.claimed();
+
+        return transactions.isEmpty() ? null : new Batch(sequence.incrementAndGet(), transactions, fetchedAt);
+    }
+
+    /**
+     * Transactions returned again after their verify or reject did not get through only have their
+     * earlier verdict sent once more, they are not enriched, validated or stored again.
+     */
+    private void resend(List<TransactionModel> verified, List<TransactionModel> rejected) throws InterruptedException {
+        if (verified.isEmpty() && rejected.isEmpty()) {
+            return;
         }
 
-        log.info("Finished processing a batch of transactions of size {}", transactions.size());
+        outbox.submit(verified, rejected);
+        redelivered.add(verified.size() + rejected.size());
+    }
+
+    private Batch enrich(Batch batch) {
+        batch.setContext(enricher.enrich(batch.getTransactions()));
+
+        return batch;
     }
 
-    private ValidationContext prefetchValidationData(List<TransactionModel> transactions) {
-        // Collect all unique identifiers
-        Set<String> personCodes = new HashSet<>();
-        Set<String> accountNumbers = new HashSet<>();
-        Set<String> deviceMacs = new HashSet<>();
+    private Batch validate(Batch batch) throws InterruptedException {
+        List<TransactionModel> ordered = new ArrayList<>(batch.getTransactions());
+        ordered.sort(BY_DEADLINE);
+
+        LocalDateTime urgentBefore = LocalDateTime.now().plus(Duration.ofMillis(properties.getUrgentDeadlineMillis()));
+        int urgent = 0;
+        while (urgent < ordered.size() && isDueBefore(ordered.get(urgent), urgentBefore)) {
+            urgent++;
+        }
 
-        for (TransactionModel transaction : transactions) {
-            personCodes.add(transaction.getSender());
-            personCodes.add(transaction.getRecipient());
-            accountNumbers.add(transaction.getSenderAccount());
-            accountNumbers.add(transaction.getRecipientAccount());
-            deviceMacs.add(transaction.getDeviceMac());
+        if (urgent == 0 || urgent == ordered.size()) {
+            return validateAll(batch.derive(ordered));
         }
 
-        log.info("Batch fetching: {} persons, {} accounts, {} devices",
-                personCodes.size(), accountNumbers.size(), deviceMacs.size());
+        // Send the decisions about to expire ahead of the rest of the batch
+        decideQueue.put(validateAll(batch.derive(ordered.subList(0, urgent))));
+        urgentFlushes.increment();
+
+        return validateAll(batch.derive(ordered.subList(urgent, ordered.size())));
+    }
+
+    private Batch validateAll(Batch batch) {
+        for (TransactionModel transaction : batch.getTransactions()) {
+            int result;
+            Lock senderLock = senderLocks.get(transaction.getSender());
 
-        // Fetch all data in batch
-        Map<String, PersonModel> persons = personRequester.get(new ArrayList<>(personCodes))
-                .stream()
-                .collect(Collectors.toMap(PersonModel::getPersonCode, Function.identity()));
+            senderLock.lock();
+            try {
+                result = validator.validate(transaction, batch.getContext());
 
-        Map<String, AccountModel> accounts = accountRequester.get(new ArrayList<>(accountNumbers))
-                .stream()
-                .collect(Collectors.toMap(AccountModel::getNumber, Function.identity()));
+                // Later transactions of the same sender, even in this batch, must see this decision
+                historyIndex.record(transaction.getSender(), transaction.getTimestamp(), transaction.getDeviceMac(),
+                        result == RuleEngine.PASSED);
+            } finally {
+                senderLock.unlock();
+            }
 
-        Map<String, DeviceModel> devices = deviceRequester.get(new ArrayList<>(deviceMacs))
-                .stream()
-                .collect(Collectors.toMap(DeviceModel::getMac, Function.identity()));
+            if (result == RuleEngine.PASSED) {
+                batch.getVerified().add(transaction);
+            } else {
+                batch.reject(transaction, result);
+            }
+        }
 
-        return new ValidationContext(persons, accounts, devices);
+        return batch;
     }
 
-    private void process(TransactionModel transaction, ValidationContext context,
-                         List<TransactionModel> verifiedTransactions,
-                         List<TransactionModel> rejectedTransactions,
-                         List<Transaction> transactionsToPersist) {
-        boolean valid = validator.isLegitimate(transaction, context);
-        if (valid) {
-            log.info("Legitimate transaction {}", transaction.getId());
-            verifiedTransactions.add(transaction);
-        } else {
-            log.info("Not legitimate transaction {}", transaction.getId());
-            rejectedTransactions.add(transaction);
+    private Batch decide(Batch batch) throws InterruptedException {
+        // Sent asynchronously, blocks only when the outbox is full
+        outbox.submit(batch.getVerified(), batch.getRejected());
+
+        // Memo first, a transaction returned again in between must be re-sent, not dropped
+        memo.record(batch.getVerified(), batch.getRejected());
+        claims.complete(batch.getTransactions());
+
+        long latencyNanos = System.nanoTime() - batch.getFetchedAtNanos();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime fetchedAt = now.minusNanos(latencyNanos);
+
+        // Only deadlines that still had slack when fetched were missed by processing, the batch size
+        // cannot help transactions that arrived late
+        int missed = 0;
+        int lateOnArrival = 0;
+        for (TransactionModel transaction : batch.getTransactions()) {
+            if (isDueBefore(transaction, fetchedAt)) {
+                lateOnArrival++;
+            } else if (isDueBefore(transaction, now)) {
+                missed++;
+            }
         }
+        auditTrail.record(batch.getVerified(), batch.getRejected(), batch.getRejectionReasons(), latencyNanos);
 
-        transactionsToPersist.add(
-                transactionMapper.toEntity(
-                        transaction,
-                        valid
-                )
-        );
+        decided.add(batch.size());
+        missedDeadlines.add(missed);
+        arrivedLate.add(lateOnArrival);
+        batchSizeController.onDecided(batch.size(), latencyNanos, missed);
+
+        log.info("Decided batch {}: verified={} rejected={} missedDeadlines={} arrivedLate={} latency={}ms",
+                batch.getSequence(), batch.getVerified().size(), batch.getRejected().size(), missed, lateOnArrival,
+                latencyNanos / 1_000_000);
+
+        return batch;
+    }
+
+    private Batch persist(Batch batch) throws InterruptedException {
+        List<TransactionDecision> decisions = new ArrayList<>(batch.size());
+
+        batch.getVerified().forEach(transaction -> decisions.add(new TransactionDecision(transaction, true)));
+        batch.getRejected().forEach(transaction -> decisions.add(new TransactionDecision(transaction, false)));
+
+        // Written asynchronously, blocks only when the write-behind queue is full
+        writeBehind.submit(decisions);
+
+        log.debug("Finished processing a batch of transactions of size {}", batch.size());
+
+        return null;
+    }
+
+    private static boolean isDueBefore(TransactionModel transaction, LocalDateTime time) {
+        return transaction.getDeadline() != null && transaction.getDeadline().isBefore(time);
     }
 }
@@ -0,0 +1,111 @@
+package ee.digit25.detector.process;
+
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+@Getter
+@Setter
+@Component
+@Validated
+@ConfigurationProperties("detector.processor")
+public class ProcessorProperties {
+
+    /**
+     * Starts the pipeline with the application. Disabled for tools and benchmarks that only need the context.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Workers per pipeline stage. Fetch workers call getUnverified concurrently, the enrich, validate
+     * and decide stages run the same number of workers to keep up.
+     */
+    @Min(1)
+    private int workers = 1;
+
+    /**
+     * Time after which a claimed but undecided transaction, e.g. of a failed batch, can be fetched again.
+     */
+    @Min(1)
+    private long claimTimeoutMillis = 60000;
+
+    /**
+     * Time decided transaction ids are ignored when a later fetch still returns them.
+     */
+    @Min(0)
+    private long decidedRetentionMillis = 30000;
+
+    /**
+     * Amount of unverified transactions requested per fetch, the starting point when the
+     * batch size is adaptive.
+     */
+    @Min(1)
+    private int batchSize = 100;
+
+    /**
+     * Lets {@link BatchSizeController} resize batches from backlog and latency feedback.
+     */
+    private boolean adaptiveBatchSize = true;
+
+    @Min(1)
+    private int minBatchSize = 20;
+
+    /**
+     * Upper bound for adaptive batches, the API keeps at most 10000 pending transactions per token.
+     */
+    @Min(1)
+    private int maxBatchSize = 1000;
+
+    /**
+     * Parses getUnverified responses as they arrive and hands transactions to enrichment in
+     * micro-batches, instead of waiting for the whole array.
+     */
+    private boolean streamFetch = true;
+
+    /**
+     * Transactions per micro-batch when fetches are streamed.
+     */
+    @Min(1)
+    private int streamChunkSize = 200;
+
+    /**
+     * Capacity of each hand-off queue between pipeline stages. Small values keep
+     * at most a couple of batches in flight between fetch and persist.
+     */
+    @Min(1)
+    private int queueCapacity = 2;
+
+    /**
+     * Keys per bulk lookup of persons, accounts or devices during enrichment.
+     */
+    @Min(1)
+    private int enrichChunkSize = 250;
+
+    /**
+     * Platform threads making enrichment lookups, shared by all entity types. Virtual threads are
+     * started per lookup. Either way the API concurrency limiter caps the calls actually in flight.
+     */
+    @Min(1)
+    private int enrichParallelism = 12;
+
+    /**
+     * Transactions due within this window are decided ahead of the rest of their batch.
+     */
+    @Min(0)
+    private long urgentDeadlineMillis = 2000;
+
+    /**
+     * Pause before fetching again after an empty batch.
+     */
+    @Min(0)
+    private long idleDelayMillis = 1;
+
+    /**
+     * Maximum time to wait for a stage to drain on shutdown.
+     */
+    @Min(0)
+    private long shutdownTimeoutMillis = 30000;
+}
@@ -0,0 +1,86 @@
+package ee.digit25.detector.process;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import ee.digit25.detector.domain.transaction.history.DecidedTransactionMemo;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registry of transaction ids being processed, shared by all fetch workers.
+ *
+ * Concurrent getUnverified calls can return the same transactions, only the worker that claims an id
+ * first processes it. Decided ids are remembered for a while longer, because a response produced
+ * before the decision was sent can still arrive after it. Claims of batches that failed expire, so
+ * their transactions are picked up again by a later fetch.
+ *
+ * Transactions with a verdict in the {@link DecidedTransactionMemo} are returned separately before
+ * any of that is checked, however recently they were decided: getUnverified only returns them again
+ * when their decision did not get through, so it has to be sent once more.
+ */
+@Component
+public class TransactionClaims {
+
+    private final DecidedTransactionMemo memo;
+    private final Cache<String, Boolean> inFlight;
+    private final Cache<String, Boolean> decided;
+
+    public TransactionClaims(ProcessorProperties properties, DecidedTransactionMemo memo) {
+        this.memo = memo;
+        this.inFlight = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(properties.getClaimTimeoutMillis()))
+                .build();
+        this.decided = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(properties.getDecidedRetentionMillis()))
+                .build();
+    }
+
+    /**
+     * @param claimed transactions claimed by the call, in the given order
+     * @param verified earlier verified transactions to send the verdict of again
+     * @param rejected earlier rejected transactions to send the verdict of again
+     */
+    public record Claim(List<TransactionModel> claimed, List<TransactionModel> verified, List<TransactionModel> rejected) {
+
+        public int size() {
+            return claimed.size() + verified.size() + rejected.size();
+        }
+    }
+
+    public Claim claim(List<TransactionModel> transactions) {
+        List<TransactionModel> claimed = new ArrayList<>(transactions.size());
+        List<TransactionModel> verified = new ArrayList<>();
+        List<TransactionModel> rejected = new ArrayList<>();
+
+        for (TransactionModel transaction : transactions) {
+            String id = transaction.getId();
+            Boolean verdict = memo.verdict(id);
+
+            if (verdict != null) {
+                (verdict ? verified : rejected).add(transaction);
+            } else if (decided.getIfPresent(id) == null && inFlight.asMap().putIfAbsent(id, Boolean.TRUE) == null) {
+                claimed.add(transaction);
+            }
+        }
+
+        return new Claim(claimed, verified, rejected);
+    }
+
+    /**
+     * Marks the transactions as decided, their ids are no longer claimable.
+     */
+    public void complete(List<TransactionModel> transactions) {
+        for (TransactionModel transaction : transactions) {
+            decided.put(transaction.getId(), Boolean.TRUE);
+            inFlight.invalidate(transaction.getId());
+        }
+    }
+
+    public long inFlight() {
+        return inFlight.estimatedSize();
+    }
+}
@@ -3,28 +3,141 @@ package ee.digit25.detector.process;
 import ee.digit25.detector.domain.account.external.api.AccountModel;
 import ee.digit25.detector.domain.device.external.api.DeviceModel;
 import ee.digit25.detector.domain.person.external.api.PersonModel;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
+import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.Map;
 
-@Getter
-@RequiredArgsConstructor
+/**
+ * Entities of one batch, compiled once into what the validators need.
+ *
+ * Every person, account and device gets a dense int index. Per index only the verdict inputs are
+ * kept: a validity bit per person, a blacklist bit per device and closed flag, owner index and
+ * balance per account. Validating a transaction resolves its five indices once and afterwards only
+ * reads primitive arrays, nothing is allocated.
+ */
 public class ValidationContext {
 
-    private final Map<String, PersonModel> persons;
-    private final Map<String, AccountModel> accounts;
-    private final Map<String, DeviceModel> devices;
+    public static final int UNKNOWN = -1;
 
-    public PersonModel getPerson(String personCode) {
-        return persons.get(personCode);
+    private final Map<String, Integer> personIndices;
+    private final boolean[] personValid;
+
+    private final Map<String, Integer> accountIndices;
+    private final boolean[] accountClosed;
+    private final int[] accountOwner;
+    private final BigDecimal[] accountBalance;
+
+    private final Map<String, Integer> deviceIndices;
+    private final boolean[] deviceBlacklisted;
+
+    private ValidationContext(
+            Map<String, Integer> personIndices,
+            boolean[] personValid,
+            Map<String, Integer> accountIndices,
+            boolean[] accountClosed,
+            int[] accountOwner,
+            BigDecimal[] accountBalance,
+            Map<String, Integer> deviceIndices,
+            boolean[] deviceBlacklisted
+    ) {
+        this.personIndices = personIndices;
+        this.personValid = personValid;
+        this.accountIndices = accountIndices;
+        this.accountClosed = accountClosed;
+        this.accountOwner = accountOwner;
+        this.accountBalance = accountBalance;
+        this.deviceIndices = deviceIndices;
+        this.deviceBlacklisted = deviceBlacklisted;
+    }
+
+    public static ValidationContext compile(
+            Map<String, PersonModel> persons,
+            Map<String, AccountModel> accounts,
+            Map<String, DeviceModel> devices
+    ) {
+        Map<String, Integer> personIndices = new HashMap<>(persons.size() * 2);
+        boolean[] personValid = new boolean[persons.size()];
+
+        for (PersonModel person : persons.values()) {
+            int index = personIndices.size();
+            personIndices.put(person.getPersonCode(), index);
+            personValid[index] = !isTrue(person.getWarrantIssued())
+                    && isTrue(person.getHasContract())
+                    && !isTrue(person.getBlacklisted());
+        }
+
+        Map<String, Integer> accountIndices = new HashMap<>(accounts.size() * 2);
+        boolean[] accountClosed = new boolean[accounts.size()];
+        int[] accountOwner = new int[accounts.size()];
+        BigDecimal[] accountBalance = new BigDecimal[accounts.size()];
+
+        for (AccountModel account : accounts.values()) {
+            int index = accountIndices.size();
+            accountIndices.put(account.getNumber(), index);
+            accountClosed[index] = isTrue(account.getClosed());
+            // Owners outside of the batch can not match any sender or recipient
+            accountOwner[index] = personIndices.getOrDefault(account.getOwner(), UNKNOWN);
+            accountBalance[index] = account.getBalance();
+        }
+
+        Map<String, Integer> deviceIndices = new HashMap<>(devices.size() * 2);
+        boolean[] deviceBlacklisted = new boolean[devices.size()];
+
+        for (DeviceModel device : devices.values()) {
+            int index = deviceIndices.size();
+            deviceIndices.put(device.getMac(), index);
+            deviceBlacklisted[index] = isTrue(device.getIsBlacklisted());
+        }
+
+        return new ValidationContext(
+                personIndices, personValid,
+                accountIndices, accountClosed, accountOwner, accountBalance,
+                deviceIndices, deviceBlacklisted
+        );
+    }
+
+    public int personIndex(String personCode) {
+        return personIndices.getOrDefault(personCode, UNKNOWN);
+    }
+
+    public int accountIndex(String accountNumber) {
+        return accountIndices.getOrDefault(accountNumber, UNKNOWN);
+    }
+
+    public int deviceIndex(String mac) {
+        return deviceIndices.getOrDefault(mac, UNKNOWN);
+    }
+
+    /**
+     * No warrant, has a contract and is not blacklisted.
+     */
+    public boolean isPersonValid(int person) {
+        return personValid[person];
+    }
+
+    public boolean isAccountClosed(int account) {
+        return accountClosed[account];
+    }
+
+    /**
+     * @return person index of the owner, {@link #UNKNOWN} when the owner is not part of the batch
+     */
+    public int accountOwner(int account) {
+        return accountOwner[account];
+    }
+
+    public boolean hasBalance(int account, BigDecimal amount) {
+        BigDecimal balance = accountBalance[account];
+
+        return balance != null && balance.compareTo(amount) >= 0;
     }
 
-    public AccountModel getAccount(String accountNumber) {
-        return accounts.get(accountNumber);
+    public boolean isDeviceBlacklisted(int device) {
+        return deviceBlacklisted[device];
     }
 
-    public DeviceModel getDevice(String mac) {
-        return devices.get(mac);
+    private static boolean isTrue(Boolean value) {
+        return Boolean.TRUE.equals(value);
     }
 }
@@ -0,0 +1,67 @@
+-- Range-partition transaction on timestamp so old rows can be dropped partition by partition.
+-- Existing rows are kept as one legacy partition ending after the latest existing timestamp,
+-- hourly partitions follow and are created ahead of time by TransactionPartitionMaintenance.
+
+ALTER TABLE transaction RENAME TO transaction_legacy;
+ALTER TABLE transaction_legacy RENAME CONSTRAINT transaction_pkey TO transaction_legacy_pkey;
+ALTER INDEX idx_transaction_sender_timestamp RENAME TO transaction_legacy_sender_id_timestamp_idx;
+ALTER INDEX idx_transaction_timestamp RENAME TO transaction_legacy_timestamp_idx;
+
+CREATE TABLE transaction
+(
+    id BIGINT NOT NULL DEFAULT nextval('transaction_id_seq'),
+    legitimate BOOLEAN NOT NULL,
+    amount decimal(10, 2) NOT NULL,
+    sender_id BIGINT NOT NULL REFERENCES person (id),
+    sender_account_id BIGINT NOT NULL REFERENCES account (id),
+    recipient_id BIGINT NOT NULL REFERENCES person (id),
+    recipient_account_id BIGINT NOT NULL REFERENCES account (id),
+    device_id BIGINT NOT NULL REFERENCES device (id),
+    timestamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    deadline TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- The sequence would otherwise be dropped together with the legacy partition
+ALTER SEQUENCE transaction_id_seq OWNED BY transaction.id;
+
+CREATE INDEX idx_transaction_sender_timestamp ON transaction (sender_id, timestamp);
+CREATE INDEX idx_transaction_timestamp ON transaction (timestamp);
+
+DO
+$$
+    DECLARE
+        legacy_end TIMESTAMP := date_trunc('hour', greatest(
+                LOCALTIMESTAMP,
+                coalesce((SELECT max(timestamp) FROM transaction_legacy), LOCALTIMESTAMP)
+            )) + INTERVAL '1 hour';
+        partition_start TIMESTAMP;
+    BEGIN
+        EXECUTE format('ALTER TABLE transaction ATTACH PARTITION transaction_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                       legacy_end);
+
+        FOR i IN 0..2
+            LOOP
+                partition_start := legacy_end + i * INTERVAL '1 hour';
+                EXECUTE format('CREATE TABLE %I PARTITION OF transaction FOR VALUES FROM (%L) TO (%L)',
+                               'transaction_' || to_char(partition_start, 'YYYYMMDD_HH24'),
+                               partition_start,
+                               partition_start + INTERVAL '1 hour');
+            END LOOP;
+    END
+$$;
+
+-- Catches transactions outside of every created partition, e.g. with a skewed clock
+CREATE TABLE transaction_default PARTITION OF transaction DEFAULT;
+
+-- Per-sender daily totals of partitions dropped by retention
+CREATE TABLE transaction_daily_summary
+(
+    day DATE NOT NULL,
+    sender_id BIGINT NOT NULL REFERENCES person (id),
+    transactions INT NOT NULL,
+    legitimate INT NOT NULL,
+    amount decimal(16, 2) NOT NULL,
+    PRIMARY KEY (day, sender_id)
+);
@@ -0,0 +1,9 @@
+-- Verify/reject decisions the transactions API has not accepted yet. Rows are written by
+-- DecisionOutbox when a flush fails or on shutdown, deleted once delivered and reloaded at startup.
+
+CREATE TABLE decision_outbox
+(
+    transaction_id TEXT PRIMARY KEY,
+    legitimate BOOLEAN NOT NULL,
+    created_at TIMESTAMP WITHOUT TIME ZONE NOT NULL DEFAULT now()
+);
@@ -0,0 +1,4 @@
+-- Id of the transaction in the transactions API, used to recognise transactions that are delivered
+-- again after their decision. Rows written before this migration have none.
+
+ALTER TABLE transaction ADD COLUMN external_id TEXT;
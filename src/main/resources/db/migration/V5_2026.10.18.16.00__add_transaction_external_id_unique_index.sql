@@ -0,0 +1,11 @@
+-- One row per transactions API transaction. A unique index on a partitioned table has to contain
+-- the partition key, the API never changes the timestamp of a transaction, so (external_id, timestamp)
+-- is unique per transaction all the same. Rows without an external id are not constrained.
+
+DELETE FROM transaction duplicate
+    USING transaction original
+WHERE duplicate.external_id = original.external_id
+  AND duplicate.timestamp = original.timestamp
+  AND duplicate.id > original.id;
+
+CREATE UNIQUE INDEX idx_transaction_external_id_timestamp ON transaction (external_id, timestamp);
@@ -0,0 +1,123 @@
+package ee.digit25.detector.common;
+
+import ee.digit25.detector.domain.person.external.api.PersonApi;
+import ee.digit25.detector.domain.transaction.external.api.TransactionsApi;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import retrofit2.Invocation;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ApiConcurrencyLimiterTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final long MILLIS = 1_000_000;
+
+    private ApiLimiterProperties properties;
+    private ApiConcurrencyLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ApiLimiterProperties();
+        // Every slow response would count, a drifting limit shows up right away
+        properties.setDecreaseCooldownMillis(0);
+        limiter = new ApiConcurrencyLimiter(properties);
+    }
+
+    @Test
+    void keepsTheLimitUnderNormalMixedLatencyTraffic() throws Exception {
+        ApiConcurrencyLimiter.RequestClass verify = requestClass(verify(10));
+        ApiConcurrencyLimiter.RequestClass unverified = requestClass(getUnverified(1000));
+        ApiConcurrencyLimiter.RequestClass lookup = requestClass(personLookup(500));
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            // Each kind of call is steady, but they differ by almost an order of magnitude
+            limiter.onResponse(verify, 200, jitter(random, 5 * MILLIS));
+            limiter.onResponse(unverified, 200, jitter(random, 40 * MILLIS));
+            limiter.onResponse(lookup, 200, jitter(random, 25 * MILLIS));
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(properties.getInitialLimit());
+    }
+
+    @Test
+    void shrinksWhenOneKindOfCallSlowsDown() throws Exception {
+        ApiConcurrencyLimiter.RequestClass verify = requestClass(verify(10));
+        ApiConcurrencyLimiter.RequestClass unverified = requestClass(getUnverified(1000));
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onResponse(verify, 200, 5 * MILLIS);
+            limiter.onResponse(unverified, 200, 40 * MILLIS);
+        }
+
+        limiter.onResponse(unverified, 200, 200 * MILLIS);
+
+        assertThat(limiter.getLimit()).isLessThan(properties.getInitialLimit());
+    }
+
+    @Test
+    void shrinksWhenThrottled() throws Exception {
+        limiter.onResponse(requestClass(verify(10)), 429, 5 * MILLIS);
+
+        assertThat(limiter.getLimit()).isEqualTo((int) (properties.getInitialLimit() * properties.getBackoffRatio()));
+    }
+
+    @Test
+    void classifiesRequestsByEndpointAndSize() throws Exception {
+        assertThat(requestClass(getUnverified(1000))).isEqualTo(requestClass(getUnverified(900)));
+        assertThat(requestClass(getUnverified(1000))).isNotEqualTo(requestClass(getUnverified(20)));
+        assertThat(requestClass(verify(10))).isNotEqualTo(requestClass(reject(10)));
+        assertThat(requestClass(personLookup(500))).isNotEqualTo(requestClass(personLookup(5)));
+    }
+
+    private static ApiConcurrencyLimiter.RequestClass requestClass(Request request) throws IOException {
+        return ApiConcurrencyLimiter.RequestClass.of(request);
+    }
+
+    private static Request getUnverified(int amount) throws NoSuchMethodException {
+        Method method = TransactionsApi.class.getMethod("getUnverified", String.class, int.class);
+
+        return new Request.Builder()
+                .url("http://localhost/transactions/unverified?amount=" + amount)
+                .tag(Invocation.class, Invocation.of(method, List.of("token", amount)))
+                .build();
+    }
+
+    private static Request verify(int transactions) throws NoSuchMethodException {
+        return idList("/transactions/verify", TransactionsApi.class.getMethod("verify", String.class, List.class), transactions);
+    }
+
+    private static Request reject(int transactions) throws NoSuchMethodException {
+        return idList("/transactions/reject", TransactionsApi.class.getMethod("reject", String.class, List.class), transactions);
+    }
+
+    private static Request personLookup(int persons) throws NoSuchMethodException {
+        return idList("/persons/by-person-codes", PersonApi.class.getMethod("get", String.class, List.class), persons);
+    }
+
+    private static Request idList(String path, Method method, int count) {
+        List<String> ids = new ArrayList<>(Collections.nCopies(count, "\"0123456789abcdef\""));
+        String body = "[" + String.join(",", ids) + "]";
+
+        return new Request.Builder()
+                .url("http://localhost" + path)
+                .post(RequestBody.create(body, JSON))
+                .tag(Invocation.class, Invocation.of(method, List.of("token", ids)))
+                .build();
+    }
+
+    private static long jitter(Random random, long nanos) {
+        return (long) (nanos * (0.8 + 0.4 * random.nextDouble()));
+    }
+}
@@ -0,0 +1,36 @@
+package ee.digit25.detector.common;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class BulkIdResolverTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BulkIdResolver resolver = new BulkIdResolver(jdbcTemplate, "device", "mac", 100);
+
+    @Test
+    void skipsNullKeys() {
+        Map<String, Long> resolved = resolver.resolve(Arrays.asList("aa:bb", null));
+
+        assertThat(resolved).doesNotContainKey(null);
+    }
+
+    @Test
+    void doesNotQueryForOnlyNullKeys() {
+        Map<String, Long> resolved = resolver.resolve(Arrays.asList(null, null));
+
+        assertThat(resolved).isEmpty();
+        verify(jdbcTemplate, never()).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+}
@@ -0,0 +1,92 @@
+package ee.digit25.detector.domain.transaction.history;
+
+import ee.digit25.detector.common.ExecutionProperties;
+import ee.digit25.detector.common.WorkerThreads;
+import ee.digit25.detector.domain.transaction.common.TransactionRepository;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class DecidedTransactionMemoTest {
+
+    @Test
+    void remembersVerdicts() {
+        DecidedTransactionMemo memo = memo(100);
+        memo.record(transactions("verified"), transactions("rejected"));
+
+        assertThat(memo.verdict("verified")).isTrue();
+        assertThat(memo.verdict("rejected")).isFalse();
+        assertThat(memo.verdict("unknown")).isNull();
+    }
+
+    @Test
+    void keepsEveryRecordedIdWhileTheFilterIsRebuiltConcurrently() throws Exception {
+        int writers = 4;
+        int idsPerWriter = 2500;
+        int rounds = 10;
+        // Every id fits in the cache, but recording them again and again rebuilds the filter many times
+        DecidedTransactionMemo memo = memo(writers * idsPerWriter);
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<Future<List<String>>> missed = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                missed.add(executor.submit(() -> {
+                    start.await();
+                    List<String> notFound = new ArrayList<>();
+                    for (int round = 0; round < rounds; round++) {
+                        for (int i = 0; i < idsPerWriter; i++) {
+                            String id = writer + "-" + i;
+                            memo.record(transactions(id), List.of());
+
+                            // The cache never evicts here, only the filter could hide an id
+                            if (memo.verdict(id) == null) {
+                                notFound.add(id);
+                            }
+                        }
+                    }
+                    return notFound;
+                }));
+            }
+
+            start.countDown();
+            for (Future<List<String>> writer : missed) {
+                assertThat(writer.get(30, TimeUnit.SECONDS)).isEmpty();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static DecidedTransactionMemo memo(long maximumSize) {
+        DecidedTransactionMemoProperties properties = new DecidedTransactionMemoProperties();
+        properties.setMaximumSize(maximumSize);
+
+        return new DecidedTransactionMemo(properties, mock(TransactionRepository.class), new WorkerThreads(new ExecutionProperties()));
+    }
+
+    private static List<TransactionModel> transactions(String... ids) {
+        List<TransactionModel> transactions = new ArrayList<>();
+
+        for (String id : ids) {
+            TransactionModel transaction = new TransactionModel();
+            transaction.setId(id);
+            transactions.add(transaction);
+        }
+
+        return transactions;
+    }
+}
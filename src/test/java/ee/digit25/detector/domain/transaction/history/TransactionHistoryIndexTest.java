@@ -0,0 +1,151 @@
+package ee.digit25.detector.domain.transaction.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionHistoryIndexTest {
+
+    private final TransactionHistoryIndex index = new TransactionHistoryIndex(null);
+
+    @Test
+    void countsOnlyTransactionsAfterSince() {
+        LocalDateTime now = LocalDateTime.now();
+        index.record("sender", now.minusSeconds(50), "device", true);
+        index.record("sender", now.minusSeconds(20), "device", true);
+        index.record("sender", now.minusSeconds(5), "device", true);
+
+        assertThat(index.countAfter("sender", now.minusSeconds(30))).isEqualTo(2);
+        assertThat(index.countAfter("sender", now.minusSeconds(5))).isZero();
+        assertThat(index.countAfter("unknown", now.minusSeconds(30))).isZero();
+    }
+
+    @Test
+    void keepsHistoriesPerSender() {
+        LocalDateTime now = LocalDateTime.now();
+        index.record("first", now, "device-1", true);
+        index.record("second", now, "device-2", false);
+        index.record("second", now, "device-3", true);
+
+        LocalDateTime since = now.minusSeconds(10);
+        assertThat(index.countAfter("first", since)).isEqualTo(1);
+        assertThat(index.countAfter("second", since)).isEqualTo(2);
+        assertThat(index.allLegitimateAfter("first", since)).isTrue();
+        assertThat(index.allLegitimateAfter("second", since)).isFalse();
+        assertThat(index.distinctDevicesAfter("second", since)).isEqualTo(2);
+        assertThat(index.senders()).isEqualTo(2);
+    }
+
+    @Test
+    void answersQueriesOnEntriesRecordedOutOfTimestampOrder() {
+        LocalDateTime now = LocalDateTime.now();
+        index.record("sender", now.minusSeconds(5), "device-1", true);
+        index.record("sender", now.minusSeconds(40), "device-2", false);
+        index.record("sender", now.minusSeconds(10), "device-1", true);
+        index.record("sender", now.minusSeconds(35), "device-3", true);
+
+        LocalDateTime since = now.minusSeconds(20);
+        assertThat(index.countAfter("sender", since)).isEqualTo(2);
+        assertThat(index.distinctDevicesAfter("sender", since)).isEqualTo(1);
+        assertThat(index.allLegitimateAfter("sender", since)).isTrue();
+        assertThat(index.allLegitimateAfter("sender", now.minusSeconds(45))).isFalse();
+        assertThat(index.distinctDevicesAfter("sender", now.minusSeconds(45))).isEqualTo(3);
+    }
+
+    @Test
+    void evictsEntriesOlderThanTheWindow() {
+        LocalDateTime now = LocalDateTime.now();
+        index.record("sender", now.minus(TransactionHistoryIndex.WINDOW).minusSeconds(30), "old-device", false);
+        index.record("sender", now.minusSeconds(1), "device", true);
+
+        index.evictExpired();
+
+        LocalDateTime longAgo = now.minusHours(1);
+        assertThat(index.countAfter("sender", longAgo)).isEqualTo(1);
+        assertThat(index.allLegitimateAfter("sender", longAgo)).isTrue();
+        assertThat(index.distinctDevicesAfter("sender", longAgo)).isEqualTo(1);
+    }
+
+    @Test
+    void dropsSendersWithoutEntriesInTheWindow() {
+        LocalDateTime expired = LocalDateTime.now().minus(TransactionHistoryIndex.WINDOW).minusSeconds(30);
+        index.record("expired", expired, "device", true);
+        index.record("active", LocalDateTime.now(), "device", true);
+
+        index.evictExpired();
+
+        assertThat(index.senders()).isEqualTo(1);
+        assertThat(index.countAfter("expired", expired.minusSeconds(1))).isZero();
+        assertThat(index.allLegitimateAfter("expired", expired.minusSeconds(1))).isTrue();
+    }
+
+    @Test
+    void recordsConcurrentlyWithQueriesAndEviction() throws Exception {
+        int writers = 4;
+        int recordsPerWriter = 5000;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime since = now.minusSeconds(30);
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        try {
+            List<Future<?>> writes = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                writes.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < recordsPerWriter; i++) {
+                        index.record("sender", now.minusNanos(i), "device-" + writer, true);
+                    }
+                    return null;
+                }));
+            }
+
+            // Counts seen by a reader only ever grow, eviction must never drop entries inside the window
+            Future<Integer> reader = executor.submit(() -> {
+                start.await();
+                int last = 0;
+                while (writing.get()) {
+                    int count = index.countAfter("sender", since);
+                    assertThat(count).isGreaterThanOrEqualTo(last);
+                    assertThat(index.distinctDevicesAfter("sender", since)).isBetween(0, writers);
+                    last = count;
+                }
+                return last;
+            });
+
+            Future<?> evictor = executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    index.evictExpired();
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> write : writes) {
+                write.get(30, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            reader.get(30, TimeUnit.SECONDS);
+            evictor.get(30, TimeUnit.SECONDS);
+
+            assertThat(index.countAfter("sender", since)).isEqualTo(writers * recordsPerWriter);
+            assertThat(index.distinctDevicesAfter("sender", since)).isEqualTo(writers);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package ee.digit25.detector.domain.transaction.outbox;
+
+import ee.digit25.detector.common.ExecutionProperties;
+import ee.digit25.detector.common.WorkerThreads;
+import ee.digit25.detector.domain.transaction.external.TransactionVerifier;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DecisionOutboxTest {
+
+    private static final long WAIT_MILLIS = 5000;
+
+    private final DecisionOutboxProperties properties = new DecisionOutboxProperties();
+    private final DecisionOutboxStore store = mock(DecisionOutboxStore.class);
+    private final TransactionVerifier verifier = mock(TransactionVerifier.class);
+    private DecisionOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        properties.setFlushIntervalMillis(100);
+        properties.setRetryDelayMillis(10);
+        outbox = new DecisionOutbox(properties, store, verifier, new WorkerThreads(new ExecutionProperties()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (outbox.isRunning()) {
+            outbox.stop();
+        }
+    }
+
+    @Test
+    void coalescesSubmittedBatchesIntoOneFlushPerVerdict() throws InterruptedException {
+        properties.setFlushIntervalMillis(200);
+        outbox.start();
+
+        outbox.submit(transactions("a"), transactions());
+        outbox.submit(transactions("b", "c"), transactions("x"));
+        outbox.submit(transactions("d"), transactions("y"));
+
+        verify(verifier, timeout(WAIT_MILLIS)).verifyIds(List.of("a", "b", "c", "d"));
+        verify(verifier, timeout(WAIT_MILLIS)).rejectIds(List.of("x", "y"));
+        outbox.stop();
+
+        verify(verifier).verifyIds(anyList());
+        verify(verifier).rejectIds(anyList());
+    }
+
+    @Test
+    void splitsFlushesAtTheMaxFlushSize() throws InterruptedException {
+        properties.setMaxFlushSize(2);
+        outbox.start();
+
+        outbox.submit(transactions("a", "b", "c", "d", "e"), transactions());
+
+        verify(verifier, timeout(WAIT_MILLIS)).verifyIds(List.of("a", "b"));
+        verify(verifier, timeout(WAIT_MILLIS)).verifyIds(List.of("c", "d"));
+        verify(verifier, timeout(WAIT_MILLIS)).verifyIds(List.of("e"));
+    }
+
+    @Test
+    void skipsIdsThatAreNotDeliveredYet() throws InterruptedException {
+        properties.setFlushIntervalMillis(0);
+        CountDownLatch delivered = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            delivered.await();
+            return null;
+        }).when(verifier).verifyIds(anyList());
+        outbox.start();
+
+        outbox.submit(transactions("a"), transactions());
+        verify(verifier, timeout(WAIT_MILLIS)).verifyIds(List.of("a"));
+        outbox.submit(transactions("a", "b", "b"), transactions());
+        delivered.countDown();
+
+        verify(verifier, timeout(WAIT_MILLIS)).verifyIds(List.of("b"));
+
+        // Once delivered an id can be sent again
+        outbox.submit(transactions("a"), transactions());
+        verify(verifier, timeout(WAIT_MILLIS).times(2)).verifyIds(List.of("a"));
+        outbox.stop();
+
+        verify(verifier, times(3)).verifyIds(anyList());
+    }
+
+    @Test
+    void storesAFailedFlushAndRemovesItOnceDelivered() throws InterruptedException {
+        doThrow(new IllegalStateException("unavailable")).doNothing().when(verifier).verifyIds(anyList());
+        outbox.start();
+
+        outbox.submit(transactions("a", "b"), transactions());
+
+        verify(store, timeout(WAIT_MILLIS)).save(List.of("a", "b"), true);
+        verify(verifier, timeout(WAIT_MILLIS).times(2)).verifyIds(List.of("a", "b"));
+        verify(store, timeout(WAIT_MILLIS)).delete(List.of("a", "b"));
+    }
+
+    @Test
+    void keepsUndeliveredDecisionsStoredOnShutdown() throws InterruptedException {
+        doThrow(new IllegalStateException("unavailable")).when(verifier).rejectIds(anyList());
+        outbox.start();
+
+        outbox.submit(transactions(), transactions("a"));
+        verify(verifier, timeout(WAIT_MILLIS)).rejectIds(List.of("a"));
+        outbox.stop();
+
+        verify(store).save(List.of("a"), false);
+        verify(store, never()).delete(anyList());
+    }
+
+    @Test
+    void sendsStoredDecisionsFirstAfterARestart() {
+        when(store.load(true)).thenReturn(List.of("restored"));
+        outbox.start();
+
+        verify(verifier, timeout(WAIT_MILLIS)).verifyIds(List.of("restored"));
+        verify(store, timeout(WAIT_MILLIS)).delete(List.of("restored"));
+    }
+
+    @Test
+    void splitsARefusedFlushUntilOnlyTheRefusedIdIsDropped() throws InterruptedException {
+        List<List<String>> calls = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            List<String> ids = invocation.getArgument(0);
+            calls.add(ids);
+
+            if (ids.contains("refused")) {
+                throw new HttpException(Response.error(400, ResponseBody.create("", null)));
+            }
+            return null;
+        }).when(verifier).verifyIds(anyList());
+        outbox.start();
+
+        outbox.submit(transactions("a", "b", "refused", "c"), transactions());
+
+        verify(verifier, timeout(WAIT_MILLIS).times(5)).verifyIds(anyList());
+        assertThat(calls).containsExactly(
+                List.of("a", "b", "refused", "c"),
+                List.of("a", "b"),
+                List.of("refused", "c"),
+                List.of("refused"),
+                List.of("c"));
+        verify(store, never()).save(anyList(), anyBoolean());
+    }
+
+    @Test
+    void retriesAFlushRejectedForTheTokenWithoutDroppingAnything() throws InterruptedException {
+        doThrow(new HttpException(Response.error(401, ResponseBody.create("", null))))
+                .doNothing()
+                .when(verifier).verifyIds(anyList());
+        outbox.start();
+
+        outbox.submit(transactions("a", "b"), transactions());
+
+        verify(store, timeout(WAIT_MILLIS)).save(List.of("a", "b"), true);
+        verify(verifier, timeout(WAIT_MILLIS).times(2)).verifyIds(List.of("a", "b"));
+        verify(store, timeout(WAIT_MILLIS)).delete(List.of("a", "b"));
+        outbox.stop();
+
+        // Never split into single ids
+        verify(verifier, times(2)).verifyIds(anyList());
+    }
+
+    @Test
+    void acknowledgesAtMostTheQueueCapacityWhileAFlushIsInFlight() throws Exception {
+        properties.setQueueCapacity(3);
+        properties.setFlushIntervalMillis(0);
+        CountDownLatch delivered = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            delivered.await();
+            return null;
+        }).when(verifier).verifyIds(anyList());
+        outbox.start();
+
+        outbox.submit(transactions("in-flight"), transactions());
+        verify(verifier, timeout(WAIT_MILLIS)).verifyIds(List.of("in-flight"));
+        outbox.submit(transactions("a", "b", "c"), transactions());
+
+        // Everything a crash now loses is the flush in flight and a full queue, the next submit waits
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> {
+            try {
+                outbox.submit(transactions("d"), transactions());
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        assertThat(blocked).isNotDone();
+
+        delivered.countDown();
+        blocked.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private static List<TransactionModel> transactions(String... ids) {
+        return Stream.of(ids).map(id -> {
+            TransactionModel transaction = new TransactionModel();
+            transaction.setId(id);
+            return transaction;
+        }).toList();
+    }
+}
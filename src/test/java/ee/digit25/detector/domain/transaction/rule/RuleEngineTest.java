@@ -0,0 +1,274 @@
+package ee.digit25.detector.domain.transaction.rule;
+
+import ee.digit25.detector.domain.account.AccountValidator;
+import ee.digit25.detector.domain.account.external.api.AccountModel;
+import ee.digit25.detector.domain.device.DeviceValidator;
+import ee.digit25.detector.domain.device.external.api.DeviceModel;
+import ee.digit25.detector.domain.person.PersonValidator;
+import ee.digit25.detector.domain.person.external.api.PersonModel;
+import ee.digit25.detector.domain.transaction.TransactionValidator;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import ee.digit25.detector.domain.transaction.history.TransactionHistoryIndex;
+import ee.digit25.detector.process.ValidationContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RuleEngineTest {
+
+    private static final Map<String, PersonModel> PERSONS = byKey(PersonModel::getPersonCode,
+            new PersonModel("Alice", "A", "alice", false, true, false),
+            new PersonModel("Bob", "B", "bob", false, true, false),
+            new PersonModel("Carol", "C", "carol", true, true, false),
+            new PersonModel("Dave", "D", "dave", false, false, false),
+            new PersonModel("Eve", "E", "eve", false, true, true));
+
+    private static final Map<String, AccountModel> ACCOUNTS = byKey(AccountModel::getNumber,
+            new AccountModel("alice-account", "alice", false, new BigDecimal("100.00")),
+            new AccountModel("alice-closed", "alice", true, new BigDecimal("100.00")),
+            new AccountModel("bob-account", "bob", false, new BigDecimal("10.00")),
+            new AccountModel("bob-closed", "bob", true, new BigDecimal("10.00")),
+            new AccountModel("carol-account", "carol", false, new BigDecimal("100.00")),
+            new AccountModel("dave-account", "dave", false, new BigDecimal("100.00")),
+            new AccountModel("eve-account", "eve", false, new BigDecimal("100.00")));
+
+    private static final Map<String, DeviceModel> DEVICES = byKey(DeviceModel::getMac,
+            device("phone", false),
+            device("tablet", false),
+            device("stolen", true));
+
+    /**
+     * @param failedRule name of the first rule the transaction fails, null when it is legitimate
+     */
+    record Case(String description, String failedRule, Consumer<TransactionModel> change, List<Past> history) {
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /**
+     * Earlier decided transaction of the sender.
+     */
+    record Past(long secondsAgo, String deviceMac, boolean legitimate) {
+    }
+
+    static Stream<Case> cases() {
+        return Stream.of(
+                new Case("legitimate", null, transaction -> {}, List.of()),
+                new Case("sender with a warrant", "sender", sender("carol", "carol-account"), List.of()),
+                new Case("blacklisted sender", "sender", sender("eve", "eve-account"), List.of()),
+                new Case("recipient without a contract", "recipient", recipient("dave", "dave-account"), List.of()),
+                new Case("blacklisted device", "device", transaction -> transaction.setDeviceMac("stolen"), List.of()),
+                new Case("closed sender account", "senderAccount",
+                        transaction -> transaction.setSenderAccount("alice-closed"), List.of()),
+                new Case("sender account of someone else", "senderAccount",
+                        transaction -> transaction.setSenderAccount("carol-account"), List.of()),
+                new Case("amount over the balance", "senderAccount",
+                        transaction -> transaction.setAmount(new BigDecimal("100.01")), List.of()),
+                new Case("closed recipient account", "recipientAccount",
+                        transaction -> transaction.setRecipientAccount("bob-closed"), List.of()),
+                new Case("recipient account of someone else", "recipientAccount",
+                        transaction -> transaction.setRecipientAccount("dave-account"), List.of()),
+                new Case("9 transactions in 30 seconds", null, transaction -> {}, repeat(9, 2, "phone")),
+                new Case("10 transactions in 30 seconds", "burst", transaction -> {}, repeat(10, 2, "phone")),
+                new Case("10 transactions, one older than 30 seconds", null, transaction -> {},
+                        Stream.concat(repeat(9, 2, "phone").stream(), Stream.of(new Past(40, "phone", true))).toList()),
+                new Case("2 devices in 10 seconds", "multiDevice", transaction -> {},
+                        List.of(new Past(2, "phone", true), new Past(5, "tablet", true))),
+                new Case("2 devices, one older than 10 seconds", null, transaction -> {},
+                        List.of(new Past(2, "phone", true), new Past(20, "tablet", true))),
+                new Case("rejected transaction in the last minute", "history", transaction -> {},
+                        List.of(new Past(45, "phone", false))),
+                new Case("rejected transaction over a minute ago", null, transaction -> {},
+                        List.of(new Past(90, "phone", false)))
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void givesTheVerdictsOfTheBaselineValidators(Case testCase) {
+        TransactionHistoryIndex historyIndex = new TransactionHistoryIndex(null);
+        RuleEngine engine = new RuleEngine(rules(historyIndex));
+        TransactionValidator validator = new TransactionValidator(engine);
+
+        LocalDateTime now = LocalDateTime.now();
+        TransactionModel transaction = transaction(now);
+        testCase.change().accept(transaction);
+        testCase.history().forEach(past -> historyIndex.record(
+                transaction.getSender(), now.minusSeconds(past.secondsAgo()), past.deviceMac(), past.legitimate()));
+
+        int result = validator.validate(transaction, ValidationContext.compile(PERSONS, ACCOUNTS, DEVICES));
+
+        assertThat(result == RuleEngine.PASSED).isEqualTo(baselineIsLegitimate(transaction, testCase.history()));
+        assertThat(result == RuleEngine.PASSED ? null : engine.ruleNames().get(result - 1)).isEqualTo(testCase.failedRule());
+    }
+
+    @Test
+    void rejectsTransactionsOfUnknownParties() {
+        TransactionValidator validator = new TransactionValidator(new RuleEngine(rules(new TransactionHistoryIndex(null))));
+        TransactionModel transaction = transaction(LocalDateTime.now());
+        transaction.setDeviceMac("unknown");
+
+        assertThat(validator.validate(transaction, ValidationContext.compile(PERSONS, ACCOUNTS, DEVICES)))
+                .isEqualTo(TransactionValidator.UNKNOWN_PARTY);
+    }
+
+    @Test
+    void runsCheapRulesFirstAndStopsAtTheFirstFailure() {
+        StubRule expensive = new StubRule("expensive", false, false);
+        StubRule cheapPassing = new StubRule("cheapPassing", true, true);
+        StubRule cheapFailing = new StubRule("cheapFailing", true, false);
+        RuleEngine engine = new RuleEngine(List.of(expensive, cheapPassing, cheapFailing));
+
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                assertThat(engine.evaluate(null)).isEqualTo(3);
+            }
+            // The expensive rule rejects everything it sees, it still has to stay behind the cheap ones
+            engine.reorder();
+        }
+
+        assertThat(expensive.invocations).isZero();
+        assertThat(cheapFailing.invocations).isEqualTo(300);
+        assertThat(cheapPassing.invocations).isLessThanOrEqualTo(300);
+    }
+
+    @Test
+    void numbersRulesInRegistrationOrder() {
+        RuleEngine engine = new RuleEngine(List.of(
+                new StubRule("first", false, true), new StubRule("second", true, false)));
+
+        assertThat(engine.ruleNames()).containsExactly("first", "second");
+        assertThat(engine.evaluate(null)).isEqualTo(2);
+    }
+
+    /**
+     * Rules in the order the baseline validator checked them.
+     */
+    private static List<Rule> rules(TransactionHistoryIndex historyIndex) {
+        PersonValidator personValidator = new PersonValidator(null);
+        AccountValidator accountValidator = new AccountValidator(null);
+
+        return List.of(
+                new RecipientRule(personValidator),
+                new SenderRule(personValidator),
+                new DeviceRule(new DeviceValidator(null)),
+                new SenderAccountRule(accountValidator),
+                new RecipientAccountRule(accountValidator),
+                new BurstRule(historyIndex),
+                new MultiDeviceRule(historyIndex),
+                new HistoryRule(historyIndex));
+    }
+
+    /**
+     * Checks of the validators before the rule engine, reading the models directly.
+     */
+    private static boolean baselineIsLegitimate(TransactionModel transaction, List<Past> history) {
+        PersonModel recipient = PERSONS.get(transaction.getRecipient());
+        PersonModel sender = PERSONS.get(transaction.getSender());
+        AccountModel senderAccount = ACCOUNTS.get(transaction.getSenderAccount());
+        AccountModel recipientAccount = ACCOUNTS.get(transaction.getRecipientAccount());
+
+        boolean isLegitimate = true;
+
+        isLegitimate &= !recipient.getWarrantIssued() && recipient.getHasContract() && !recipient.getBlacklisted();
+        isLegitimate &= !sender.getWarrantIssued() && sender.getHasContract() && !sender.getBlacklisted();
+        isLegitimate &= !DEVICES.get(transaction.getDeviceMac()).getIsBlacklisted();
+        isLegitimate &= !senderAccount.getClosed()
+                && transaction.getSender().equals(senderAccount.getOwner())
+                && senderAccount.getBalance().compareTo(transaction.getAmount()) >= 0;
+        isLegitimate &= !recipientAccount.getClosed()
+                && transaction.getRecipient().equals(recipientAccount.getOwner());
+        isLegitimate &= history.stream().filter(past -> past.secondsAgo() < 30).count() < 10;
+        isLegitimate &= history.stream().filter(past -> past.secondsAgo() < 10).map(Past::deviceMac).distinct().count() < 2;
+        isLegitimate &= history.stream().filter(past -> past.secondsAgo() < 60).allMatch(Past::legitimate);
+
+        return isLegitimate;
+    }
+
+    private static TransactionModel transaction(LocalDateTime now) {
+        return new TransactionModel("transaction", new BigDecimal("50.00"), "alice", "bob",
+                "alice-account", "bob-account", "phone", now, now.plusSeconds(10));
+    }
+
+    private static Consumer<TransactionModel> sender(String personCode, String account) {
+        return transaction -> {
+            transaction.setSender(personCode);
+            transaction.setSenderAccount(account);
+        };
+    }
+
+    private static Consumer<TransactionModel> recipient(String personCode, String account) {
+        return transaction -> {
+            transaction.setRecipient(personCode);
+            transaction.setRecipientAccount(account);
+        };
+    }
+
+    private static List<Past> repeat(int count, long secondsAgo, String deviceMac) {
+        List<Past> history = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            history.add(new Past(secondsAgo + i, deviceMac, true));
+        }
+
+        return history;
+    }
+
+    private static DeviceModel device(String mac, boolean blacklisted) {
+        DeviceModel device = new DeviceModel();
+        device.setMac(mac);
+        device.setIsBlacklisted(blacklisted);
+
+        return device;
+    }
+
+    @SafeVarargs
+    private static <T> Map<String, T> byKey(Function<T, String> key, T... models) {
+        return Stream.of(models).collect(Collectors.toMap(key, Function.identity()));
+    }
+
+    private static class StubRule implements Rule {
+
+        private final String name;
+        private final boolean cheap;
+        private final boolean passes;
+        private int invocations;
+
+        StubRule(String name, boolean cheap, boolean passes) {
+            this.name = name;
+            this.cheap = cheap;
+            this.passes = passes;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public boolean isCheap() {
+            return cheap;
+        }
+
+        @Override
+        public boolean test(RuleInput input) {
+            invocations++;
+            return passes;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package ee.digit25.detector.process;
+
+import ee.digit25.detector.common.ExecutionProperties;
+import ee.digit25.detector.common.WorkerThreads;
+import ee.digit25.detector.domain.account.external.AccountRequester;
+import ee.digit25.detector.domain.account.external.api.AccountModel;
+import ee.digit25.detector.domain.device.external.DeviceRequester;
+import ee.digit25.detector.domain.device.external.api.DeviceModel;
+import ee.digit25.detector.domain.person.external.PersonRequester;
+import ee.digit25.detector.domain.person.external.api.PersonModel;
+import ee.digit25.detector.domain.transaction.TransactionValidator;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import ee.digit25.detector.domain.transaction.rule.RuleEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchEnricherTest {
+
+    private final PersonRequester personRequester = mock(PersonRequester.class);
+    private final AccountRequester accountRequester = mock(AccountRequester.class);
+    private final DeviceRequester deviceRequester = mock(DeviceRequester.class);
+    private BatchEnricher enricher;
+
+    @BeforeEach
+    void setUp() {
+        // Like the reference caches, a null key fails the whole lookup
+        when(personRequester.getAsync(anyCollection())).thenAnswer(invocation -> lookup(invocation.getArgument(0),
+                code -> new PersonModel(code, code, code, false, true, false)));
+        when(accountRequester.getAsync(anyCollection())).thenAnswer(invocation -> lookup(invocation.getArgument(0),
+                number -> new AccountModel(number, number.replace("-account", ""), false, new BigDecimal("100.00"))));
+        when(deviceRequester.getAsync(anyCollection())).thenAnswer(invocation -> lookup(invocation.getArgument(0),
+                mac -> {
+                    DeviceModel device = new DeviceModel();
+                    device.setMac(mac);
+                    device.setIsBlacklisted(false);
+                    return device;
+                }));
+
+        enricher = new BatchEnricher(new ProcessorProperties(), personRequester, accountRequester, deviceRequester,
+                new WorkerThreads(new ExecutionProperties()), new ExecutionProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        enricher.shutdown();
+    }
+
+    @Test
+    void rejectsTransactionsWithoutADeviceAsUnknownParties() {
+        TransactionModel withoutDevice = transaction("without-device", null);
+        TransactionModel withDevice = transaction("with-device", "phone");
+
+        ValidationContext context = enricher.enrich(List.of(withoutDevice, withDevice));
+
+        assertThat(context.deviceIndex(null)).isEqualTo(ValidationContext.UNKNOWN);
+        assertThat(context.deviceIndex("phone")).isNotEqualTo(ValidationContext.UNKNOWN);
+
+        TransactionValidator validator = new TransactionValidator(new RuleEngine(List.of()));
+        assertThat(validator.validate(withoutDevice, context)).isEqualTo(TransactionValidator.UNKNOWN_PARTY);
+        assertThat(validator.validate(withDevice, context)).isEqualTo(RuleEngine.PASSED);
+    }
+
+    private static TransactionModel transaction(String id, String deviceMac) {
+        LocalDateTime now = LocalDateTime.now();
+
+        return new TransactionModel(id, new BigDecimal("10.00"), "alice", "bob",
+                "alice-account", "bob-account", deviceMac, now, now.plusSeconds(10));
+    }
+
+    private static <T> CompletableFuture<Map<String, T>> lookup(Collection<String> keys, Function<String, T> model) {
+        if (keys.contains(null)) {
+            return CompletableFuture.failedFuture(new NullPointerException());
+        }
+
+        Map<String, T> found = new HashMap<>();
+        keys.forEach(key -> found.put(key, model.apply(key)));
+
+        return CompletableFuture.completedFuture(found);
+    }
+}
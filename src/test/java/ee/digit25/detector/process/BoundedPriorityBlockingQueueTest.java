@@ -0,0 +1,182 @@
+package ee.digit25.detector.process;
+
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoundedPriorityBlockingQueueTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    @Test
+    void takesBatchesEarliestDeadlineFirst() throws InterruptedException {
+        BoundedPriorityBlockingQueue<Batch> queue = new BoundedPriorityBlockingQueue<>(10, Batch.BY_EARLIEST_DEADLINE);
+        queue.put(batch(1, 30, 40));
+        queue.put(batch(2, 50));
+        queue.put(batch(3, 60, 10));
+        queue.put(batch(4));
+
+        assertThat(queue.take().getSequence()).isEqualTo(3);
+        assertThat(queue.take().getSequence()).isEqualTo(1);
+        assertThat(queue.poll().getSequence()).isEqualTo(2);
+        // Batches without deadlines go last
+        assertThat(queue.poll(1, TimeUnit.MILLISECONDS).getSequence()).isEqualTo(4);
+        assertThat(queue.poll()).isNull();
+    }
+
+    @Test
+    void rejectsOffersWhileFull() throws InterruptedException {
+        BoundedPriorityBlockingQueue<Batch> queue = new BoundedPriorityBlockingQueue<>(2, Batch.BY_EARLIEST_DEADLINE);
+
+        assertThat(queue.offer(batch(1, 10))).isTrue();
+        assertThat(queue.offer(batch(2, 20))).isTrue();
+        assertThat(queue.offer(batch(3, 5))).isFalse();
+        assertThat(queue.remainingCapacity()).isZero();
+
+        long start = System.nanoTime();
+        assertThat(queue.offer(batch(3, 5), 50, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(queue.size()).isEqualTo(2);
+    }
+
+    @Test
+    void blocksPutUntilSpaceIsFreed() throws Exception {
+        BoundedPriorityBlockingQueue<Batch> queue = new BoundedPriorityBlockingQueue<>(1, Batch.BY_EARLIEST_DEADLINE);
+        queue.put(batch(1, 10));
+
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            try {
+                queue.put(batch(2, 5));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        assertThat(producer).isNotDone();
+
+        assertThat(queue.take().getSequence()).isEqualTo(1);
+        producer.get(5, TimeUnit.SECONDS);
+        assertThat(queue.take().getSequence()).isEqualTo(2);
+    }
+
+    @Test
+    void timedOfferSucceedsOnceSpaceIsFreed() throws Exception {
+        BoundedPriorityBlockingQueue<Batch> queue = new BoundedPriorityBlockingQueue<>(1, Batch.BY_EARLIEST_DEADLINE);
+        queue.put(batch(1, 10));
+
+        CompletableFuture<Boolean> producer = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.offer(batch(2, 5), 5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(50);
+        queue.poll();
+
+        assertThat(producer.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queue.peek().getSequence()).isEqualTo(2);
+    }
+
+    @Test
+    void timedPollReturnsNullWhenNothingArrives() throws InterruptedException {
+        BoundedPriorityBlockingQueue<Batch> queue = new BoundedPriorityBlockingQueue<>(2, Batch.BY_EARLIEST_DEADLINE);
+
+        long start = System.nanoTime();
+        assertThat(queue.poll(50, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void timedPollWakesUpOnPut() throws Exception {
+        BoundedPriorityBlockingQueue<Batch> queue = new BoundedPriorityBlockingQueue<>(2, Batch.BY_EARLIEST_DEADLINE);
+
+        CompletableFuture<Batch> consumer = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.poll(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(50);
+        queue.put(batch(1, 10));
+
+        assertThat(consumer.get(5, TimeUnit.SECONDS).getSequence()).isEqualTo(1);
+    }
+
+    @Test
+    void drainsInDeadlineOrderUpToTheLimitAndUnblocksProducers() throws Exception {
+        BoundedPriorityBlockingQueue<Batch> queue = new BoundedPriorityBlockingQueue<>(3, Batch.BY_EARLIEST_DEADLINE);
+        queue.put(batch(1, 30));
+        queue.put(batch(2, 10));
+        queue.put(batch(3, 20));
+
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            try {
+                queue.put(batch(4, 40));
+                queue.put(batch(5, 50));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        List<Batch> drained = new ArrayList<>();
+        assertThat(queue.drainTo(drained, 2)).isEqualTo(2);
+        assertThat(drained).extracting(Batch::getSequence).containsExactly(2L, 3L);
+
+        producer.get(5, TimeUnit.SECONDS);
+        assertThat(queue.size()).isEqualTo(3);
+
+        drained.clear();
+        assertThat(queue.drainTo(drained)).isEqualTo(3);
+        assertThat(drained).extracting(Batch::getSequence).containsExactly(1L, 4L, 5L);
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void takeIsInterruptible() throws Exception {
+        BoundedPriorityBlockingQueue<Batch> queue = new BoundedPriorityBlockingQueue<>(1, Batch.BY_EARLIEST_DEADLINE);
+        CompletableFuture<Boolean> interrupted = new CompletableFuture<>();
+
+        Thread consumer = new Thread(() -> {
+            try {
+                queue.take();
+                interrupted.complete(false);
+            } catch (InterruptedException e) {
+                interrupted.complete(true);
+            }
+        });
+        consumer.start();
+
+        Thread.sleep(50);
+        consumer.interrupt();
+
+        assertThat(interrupted.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    /**
+     * @param deadlineSeconds deadlines of the transactions, in seconds after {@link #NOW}
+     */
+    private static Batch batch(long sequence, int... deadlineSeconds) {
+        List<TransactionModel> transactions = new ArrayList<>();
+
+        for (int seconds : deadlineSeconds) {
+            TransactionModel transaction = new TransactionModel();
+            transaction.setId(sequence + "-" + seconds);
+            transaction.setDeadline(NOW.plusSeconds(seconds));
+            transactions.add(transaction);
+        }
+
+        return new Batch(sequence, transactions, System.nanoTime());
+    }
+}
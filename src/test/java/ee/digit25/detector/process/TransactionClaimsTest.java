@@ -0,0 +1,74 @@
+package ee.digit25.detector.process;
+
+import ee.digit25.detector.common.ExecutionProperties;
+import ee.digit25.detector.common.WorkerThreads;
+import ee.digit25.detector.domain.transaction.common.TransactionRepository;
+import ee.digit25.detector.domain.transaction.external.api.TransactionModel;
+import ee.digit25.detector.domain.transaction.history.DecidedTransactionMemo;
+import ee.digit25.detector.domain.transaction.history.DecidedTransactionMemoProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class TransactionClaimsTest {
+
+    private final DecidedTransactionMemo memo =
+            new DecidedTransactionMemo(new DecidedTransactionMemoProperties(), mock(TransactionRepository.class),
+                    new WorkerThreads(new ExecutionProperties()));
+    private final TransactionClaims claims = new TransactionClaims(new ProcessorProperties(), memo);
+
+    @Test
+    void claimsEachTransactionOnce() {
+        TransactionClaims.Claim first = claims.claim(transactions("a", "b"));
+        TransactionClaims.Claim second = claims.claim(transactions("b", "c"));
+
+        assertThat(ids(first.claimed())).containsExactly("a", "b");
+        assertThat(ids(second.claimed())).containsExactly("c");
+        assertThat(second.size()).isEqualTo(1);
+        assertThat(claims.inFlight()).isEqualTo(3);
+    }
+
+    @Test
+    void returnsTransactionsDecidedWithinTheRetentionWindowForResending() {
+        List<TransactionModel> batch = transactions("verified", "rejected");
+        claims.claim(batch);
+        memo.record(transactions("verified"), transactions("rejected"));
+        claims.complete(batch);
+
+        // Fetched again right away, their verify and reject did not get through
+        TransactionClaims.Claim again = claims.claim(transactions("verified", "rejected", "new"));
+
+        assertThat(ids(again.claimed())).containsExactly("new");
+        assertThat(ids(again.verified())).containsExactly("verified");
+        assertThat(ids(again.rejected())).containsExactly("rejected");
+        assertThat(again.size()).isEqualTo(3);
+    }
+
+    @Test
+    void dropsTransactionsDecidedWithoutAVerdict() {
+        List<TransactionModel> batch = transactions("a");
+        claims.claim(batch);
+        claims.complete(batch);
+
+        TransactionClaims.Claim again = claims.claim(batch);
+
+        assertThat(again.size()).isZero();
+        assertThat(claims.inFlight()).isZero();
+    }
+
+    private static List<String> ids(List<TransactionModel> transactions) {
+        return transactions.stream().map(TransactionModel::getId).toList();
+    }
+
+    private static List<TransactionModel> transactions(String... ids) {
+        return Stream.of(ids).map(id -> {
+            TransactionModel transaction = new TransactionModel();
+            transaction.setId(id);
+            return transaction;
+        }).toList();
+    }
+}